@@ -4,15 +4,32 @@
  */
 package de.zombielabs.paingame;
 
-import com.pi4j.io.gpio.GpioController;
-import com.pi4j.io.gpio.GpioFactory;
-import static de.zombielabs.paingame.Paingame.DEVELOPMENT;
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.PlayerConfiguration;
 import de.zombielabs.paingame.games.Game;
 import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.games.GameMode;
+import de.zombielabs.paingame.input.BuzzerCalibration;
+import de.zombielabs.paingame.input.BuzzerInput;
+import de.zombielabs.paingame.input.CalibrationReport;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.log.LogEvent;
+import de.zombielabs.paingame.random.RandomService;
+import de.zombielabs.paingame.safety.ShockGovernor;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
@@ -29,79 +46,432 @@ public class GameController implements GameListener {
     /**
      * The list of all Players.
      */
-    private List<Player> players;
+    private volatile List<Player> players;
     
     /**
-     * The Game that is currently controlled.
+     * The bitmask of all players, kept along with players.
      */
-    private Game game;
+    private volatile long playerMask;
+    
+    /**
+     * Where to get the latest configuration from, null if the players are fixed.
+     */
+    private final Supplier<Configuration> configuration;
+    
+    /**
+     * Creates the players whenever the configuration changes, null if the 
+     * players are fixed.
+     */
+    private final PlayerFactory playerFactory;
+    
+    /**
+     * Enforces the shock budget of all players, over all games.
+     */
+    private final ShockGovernor shockGovernor = new ShockGovernor();
+    
+    /**
+     * Hands out the random numbers of all games.
+     */
+    private volatile RandomService randomService;
+    
+    /**
+     * The input pipeline of all players' buzzers.
+     */
+    private final BuzzerInput buzzerInput = new BuzzerInput();
+    
+    /**
+     * The configuration the current players have been created from.
+     */
+    private Configuration applied;
     
     /**
-     * The GpioController to actually trigger pins etc.
+     * The Game that is currently controlled.
      */
-    private final GpioController gpio = GpioFactory.getInstance();
+    private Game game;
     
     /**
      * The amount of time to switch on the winner's LED.
      */
     private final int WIN_LED_TIME = 2000;
     
+    /**
+     * The LEDs currently showing the winners of the last game. They are left
+     * alone when outputs are reset, until WIN_LED_TIME is over.
+     */
+    private volatile long winnerLEDs = 0;
+    
+    /**
+     * Counts down once the winners' LEDs of the last game are off again.
+     */
+    private volatile CountDownLatch winnerLEDsOff = new CountDownLatch(0);
+    
+    /**
+     * The amount of time to wait for the buzzers during calibration.
+     */
+    private static final long CALIBRATION_TIMEOUT = 3000;
+    
+    /**
+     * The single thread all games are played on, one after the other. Null if
+     * the games are played on an Executor handed in.
+     */
+    private final ExecutorService gameThread;
+    
+    /**
+     * Where the games are played, usually gameThread.
+     */
+    private final Executor executor;
+    
     /**
      * Initializes a new instance of the GameController class.
      * @param players 
      */
     public GameController(List<Player> players) {
-        this.players = players;
+        this.gameThread = newGameThread();
+        this.executor = this.gameThread;
+        this.setPlayers(players);
+        this.configuration = null;
+        this.playerFactory = null;
+        this.buzzerInput.attach(players);
+    }
+    
+    /**
+     * Initializes a new instance of the GameController class that plays its
+     * games on the given Executor instead of a thread of its own, e.g. on the
+     * thread that starts them. The Executor is not shut down along with the
+     * controller.
+     * @param players The players
+     * @param executor Where to play the games
+     * @throws IllegalArgumentException if executor is null
+     */
+    public GameController(List<Player> players, Executor executor) {
+        if(executor == null) {
+            throw new IllegalArgumentException("Parameter 'executor' must not be null");
+        }
+
+        this.gameThread = null;
+        this.executor = executor;
+        this.setPlayers(players);
+        this.configuration = null;
+        this.playerFactory = null;
+        this.buzzerInput.attach(players);
+    }
+    
+    /**
+     * Initializes a new instance of the GameController class that follows
+     * configuration changes. Before each game, the latest configuration is
+     * checked and the players are recreated if it has changed.
+     * @param configuration Where to get the latest configuration from
+     * @param playerFactory Used to create the players
+     */
+    public GameController(Supplier<Configuration> configuration, PlayerFactory playerFactory) {
+        this.gameThread = newGameThread();
+        this.executor = this.gameThread;
+        this.configuration = configuration;
+        this.playerFactory = playerFactory;
+        this.applyConfiguration();
+    }
+    
+    /**
+     * Makes sure the players match the latest configuration. Must only be 
+     * called between games, as the players' pins might be provisioned again.
+     * @return The configuration now in effect, null if the players are fixed
+     */
+    synchronized Configuration applyConfiguration() {
+        if(this.configuration == null) {
+            return null;
+        }
+        
+        // Read once, so players and game parameters come from the same snapshot
+        final Configuration latest = this.configuration.get();
+        if(latest != this.applied) {
+            if(latest.hasSamePlayers(this.applied)) {
+                // Players and pins stay, and so does everything they have learned
+                log.info("Game parameters have changed, keeping the players");
+            } else {
+                final List<Player> previous = this.players;
+                if(previous != null) {
+                    log.info("Players have changed, setting them up again");
+                    this.buzzerInput.detach();
+                    this.playerFactory.release(previous);
+                }
+                this.setPlayers(this.playerFactory.create(latest));
+                if(previous != null) {
+                    this.keepBuzzerOffsets(previous, latest);
+                }
+                this.buzzerInput.attach(this.players);
+            }
+            this.shockGovernor.setLimits(latest.getShockLimits());
+            this.applied = latest;
+        }
+        
+        return latest;
+    }
+    
+    /**
+     * Hands the buzzer offsets of the previous players, e.g. from a
+     * calibration, over to the new ones. Only if a player still has the same
+     * buzzer, and the configured offset has not been changed.
+     * @param previous The previous players
+     * @param latest The configuration the new players have been created from
+     */
+    private void keepBuzzerOffsets(List<Player> previous, Configuration latest) {
+        final List<PlayerConfiguration> before = this.applied.getPlayers();
+        final List<PlayerConfiguration> after = latest.getPlayers();
+        for(int slot=0; slot<Math.min(previous.size(), this.players.size()); slot++) {
+            if(before.get(slot).getBuzzerPin().equals(after.get(slot).getBuzzerPin())
+                    && before.get(slot).getBuzzerOffset() == after.get(slot).getBuzzerOffset()) {
+                this.players.get(slot).setBuzzerOffset(previous.get(slot).getBuzzerOffset());
+            }
+        }
+    }
+    
+    /**
+     * Creates a new session for the given game, with this controller listening
+     * in on it. The session has not been started yet.
+     * @param game The game to play.
+     * @return The GameSession
+     */
+    public GameSession createSession(final Game game) {
+        this.applyConfiguration();
+        return this.newSession(game);
+    }
+    
+    /**
+     * Creates a new session for the given game with the current players,
+     * without checking the configuration first. Is used to prepare games
+     * while another game is still played.
+     * @param game The game to play.
+     * @return The GameSession
+     */
+    GameSession newSession(final Game game) {
+        game.setShockGovernor(this.shockGovernor);
+        game.setRandomService(this.getRandomService());
+        return new GameSession(game, players.toArray(new Player[0]), this.executor)
+                .addListener(this)
+                .setBuzzerInput(this.buzzerInput);
+    }
+    
+    /**
+     * Gets the current players. Only changes when the configuration is applied.
+     * @return The players
+     */
+    List<Player> getPlayers() {
+        return this.players;
+    }
+    
+    /**
+     * Creates a game from the configuration now in effect, without checking
+     * for a newer one.
+     * @param mode The mode of the game to create
+     * @return The new Game
+     * @throws IllegalStateException if this controller has no configuration
+     */
+    synchronized Game createGame(GameMode mode) {
+        if(this.applied == null) {
+            throw new IllegalStateException("No configuration to create " + mode + " from");
+        }
+        
+        return this.applied.createGame(mode);
     }
     
     /**
      * Hands control over to this controller.
      * @param game The game to play.
+     * @return The future final score of the game
+     */
+    public CompletableFuture<HashMap<Player, Integer>> play(Game game) {
+        this.game = game;
+        return this.createSession(game).start();
+    }
+    
+    /**
+     * Hands control over to this controller. The game is created from the 
+     * latest configuration.
+     * @param mode The mode of the game to play.
+     * @return The future final score of the game
+     * @throws IllegalStateException if this controller has no configuration
+     */
+    public CompletableFuture<HashMap<Player, Integer>> play(GameMode mode) {
+        final Configuration latest = this.applyConfiguration();
+        if(latest == null) {
+            throw new IllegalStateException("No configuration to create " + mode + " from");
+        }
+        
+        return this.play(latest.createGame(mode));
+    }
+    
+    /**
+     * Hands control over to this controller, but only for a limited amount of
+     * time. The game is cancelled once the time is up.
+     * @param game The game to play.
+     * @param timeout The maximum amount of time the game may take
+     * @param unit The unit of timeout
+     * @return The future final score of the game
      */
-    public void play(Game game) {
+    public CompletableFuture<HashMap<Player, Integer>> play(Game game, long timeout, TimeUnit unit) {
         this.game = game;
-        this.game.setup(players.toArray(new Player[0]));
-        this.game.addListener(this);
+        return this.createSession(game).start(timeout, unit);
+    }
+    
+    /**
+     * Plays all the given games back to back. Each game is started as soon as
+     * the previous one has been torn down, no thread is blocked in between.
+     * Should any game fail, the remaining games will not be played. Cancelling
+     * the returned future cancels the game currently played, the remaining
+     * games will not be played either.
+     * @param games The games to play, in order
+     * @return The future final score of the last game
+     */
+    public CompletableFuture<HashMap<Player, Integer>> playAll(List<Game> games) {
+        final CompletableFuture<HashMap<Player, Integer>> all = new CompletableFuture<HashMap<Player, Integer>>();
+        final AtomicReference<GameSession> current = new AtomicReference<GameSession>();
+        CompletableFuture<HashMap<Player, Integer>> chain = CompletableFuture.completedFuture(null);
         
-        Thread gameThread = new Thread(this.game, "game");
-        gameThread.start();
+        for(final Game next : games) {
+            chain = chain.thenCompose(previous -> {
+                this.game = next;
+                final GameSession session = this.createSession(next);
+                current.set(session);
+                
+                // Set before looking, so a cancellation either sees this session or is seen here
+                if(all.isDone()) {
+                    session.cancel();
+                }
+                return session.start();
+            });
+        }
+        
+        chain.whenComplete((score, error) -> {
+            if(error != null) {
+                all.completeExceptionally(error);
+            } else {
+                all.complete(score);
+            }
+        });
+        all.whenComplete((score, error) -> {
+            final GameSession session = current.get();
+            if(error != null && session != null) {
+                session.cancel();
+            }
+        });
+        return all;
+    }
+    
+    /**
+     * Measures the latency of all buzzers and applies the resulting offsets.
+     * Must only be called between games.
+     * @param trials How often to give the cue
+     * @return The report of the calibration
+     * @throws InterruptedException If the calibration was interrupted
+     */
+    public CalibrationReport calibrate(int trials) throws InterruptedException {
+        this.applyConfiguration();
+        
+        final CalibrationReport report = new BuzzerCalibration(this.buzzerInput, players.toArray(new Player[0])).run(trials, CALIBRATION_TIMEOUT);
+        report.apply();
+        return report;
+    }
+    
+    /**
+     * Gets the ShockGovernor used for all games played by this controller.
+     * @return The ShockGovernor
+     */
+    public ShockGovernor getShockGovernor() {
+        return shockGovernor;
+    }
+    
+    /**
+     * Gets the RandomService that hands out the random numbers of all games.
+     * Unless one has been set, a RandomService seeded from secure entropy is
+     * created on first use.
+     * @return The RandomService
+     */
+    public synchronized RandomService getRandomService() {
+        if(this.randomService == null) {
+            this.randomService = new RandomService();
+        }
+        return this.randomService;
+    }
+    
+    /**
+     * Sets the RandomService that hands out the random numbers of all games,
+     * e.g. one with a recorded seed to play all games again.
+     * @param randomService The RandomService to use
+     * @throws IllegalArgumentException if randomService is null
+     */
+    public synchronized void setRandomService(RandomService randomService) {
+        if(randomService == null) {
+            throw new IllegalArgumentException("Parameter 'randomService' must not be null");
+        }
+        
+        this.randomService = randomService;
+    }
+    
+    /**
+     * Stops accepting new games. Games already queued will still be played.
+     * An Executor handed in is left alone.
+     */
+    public void shutdown() {
+        if(this.gameThread != null) {
+            this.gameThread.shutdown();
+        }
+    }
+
+    /**
+     * Waits until the winners' LEDs of the last game are off again, i.e. for
+     * WIN_LED_TIME at most. Is used before shutting down, so the winners
+     * can be seen even after the last game.
+     * @throws InterruptedException If the thread was interrupted
+     */
+    public void awaitOutputs() throws InterruptedException {
+        final CountDownLatch off = this.winnerLEDsOff;
+        final List<Player> current = this.players;
+        if(off.getCount() > 0 && !current.isEmpty()) {
+            current.get(0).getBoard().getClock().await(off, WIN_LED_TIME, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
      * Is called by the currently played game once it ends.
-     * Will determine the winner(s) and switch on the LEDs accordingly. After
-     * that, will pause the thread for a given amount of time, so the LEDs can
-     * return to their original state.
+     * Will determine the winner(s) and switch on their LEDs for WIN_LED_TIME.
+     * Does not wait for that, the next game can start right away, the
+     * winners' LEDs keep shining into it.
      * @param game The game that has ended
      * @param score The final score
      */
     @Override
     public void onGameEnded(Game game, HashMap<Player, Integer> score) {
-        log.info(game.getGameName() + " has ended");
+        EventLog.INSTANCE.log(log, LogEvent.GAME_ENDED, game.getGameName());
         final List<Player> winners = this.findWinners(score);
+        long winnerMask = 0;
         for(final Player winner : winners) {
-            log.info("Winner: " + winner);
-            if(!DEVELOPMENT) {
-                log.error("Switching on LED of " + winner.getName());
-                winner.getLEDPin().pulse(WIN_LED_TIME, false);
-            } else {
-                log.warn("Development mode, no actual pin triggering");
-            }
+            EventLog.INSTANCE.log(log, LogEvent.WINNER, winner);
+            winnerMask |= winner.getMask();
         }
         
-        // Delay the game for WIN_LED_TIME
-        try {
-            Thread.sleep(WIN_LED_TIME);
-        } catch (InterruptedException ex) {
-            log.error("Unable to delay, interrupted!");
+        // Switch on the LEDs of all winners at once
+        if(winnerMask != 0) {
+            final long shown = winnerMask;
+            final CountDownLatch off = new CountDownLatch(1);
+            final PlayerBoard board = winners.get(0).getBoard();
+            this.winnerLEDs = shown;
+            this.winnerLEDsOff = off;
+            board.pulse(0, shown, WIN_LED_TIME, false);
+            // Due at the same time as the pulse, but runs after it
+            board.getClock().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if(winnerLEDs == shown) {
+                        winnerLEDs = 0;
+                    }
+                    off.countDown();
+                }
+            }, WIN_LED_TIME);
         }
         
-        
-        // Reset all LEDs and other pins
-        for(final Player player : this.players) {
-            log.error("Switching off LEDs etc for " + player.getName());
-            player.resetOutput();
-        }
+        // Reset all other LEDs and pins
+        EventLog.INSTANCE.log(log, LogEvent.OUTPUTS_RESET, null);
+        this.resetOutputs();
     }
 
     /**
@@ -112,12 +482,10 @@ public class GameController implements GameListener {
      */
     @Override
     public void onRoundStarted(Game game, int current, int total) {
-        log.info("Round " + current + " of " + total + " of " + game.getGameName() + " is about to start");
+        EventLog.INSTANCE.log(log, LogEvent.ROUND_STARTED, game.getGameName(), current, total);
         
         // Reset all LEDs and other pins
-        for(final Player player : this.players) {
-            player.resetOutput();
-        }
+        this.resetOutputs();
     }
 
     /**
@@ -128,7 +496,35 @@ public class GameController implements GameListener {
      */
     @Override
     public void onRoundEnded(Game game, int current, int total) {
-        log.info(current + " of " + total + " rounds of " + game.getGameName() + " have been played");
+        EventLog.INSTANCE.log(log, LogEvent.ROUND_ENDED, game.getGameName(), current, total);
+    }
+    
+    /**
+     * Switches off the outputs of all players with a single write, except the
+     * LEDs still showing the winners of the last game.
+     */
+    private void resetOutputs() {
+        final List<Player> current = this.players;
+        if(current.isEmpty()) {
+            return;
+        }
+        
+        final long mask = this.playerMask;
+        current.get(0).getBoard().clear(mask, mask & ~this.winnerLEDs);
+    }
+    
+    /**
+     * Sets the players and their bitmask.
+     * @param players The players
+     */
+    private void setPlayers(List<Player> players) {
+        long mask = 0;
+        for(final Player player : players) {
+            mask |= player.getMask();
+        }
+        
+        this.playerMask = mask;
+        this.players = players;
     }
     
     /**
@@ -154,4 +550,17 @@ public class GameController implements GameListener {
         
         return winners;
     }
+    
+    /**
+     * Creates the single thread games are played on.
+     * @return The thread, as an ExecutorService
+     */
+    private static ExecutorService newGameThread() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "game");
+            }
+        });
+    }
 }
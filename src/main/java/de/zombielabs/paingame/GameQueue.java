@@ -0,0 +1,404 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.games.GameMode;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.log.LogEvent;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.safety.ShockGovernor;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The GameQueue plays games back to back, e.g. in attract mode at a kiosk.
+ *
+ * While a game is played, the next one is prepared in the background: it is
+ * created, gets its random numbers, the players are checked, it is played
+ * once on a simulated board in virtual time, so the JIT has compiled the game
+ * before it counts, and it is set up. Once the current game has ended, the
+ * next one starts right away.
+ *
+ * For every game, the time from the switch over to its first round is
+ * measured and logged, see getLastLatency().
+ * @author steps
+ */
+public class GameQueue {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(GameQueue.class);
+
+    /**
+     * The controller the games are played with.
+     */
+    private final GameController controller;
+
+    /**
+     * Creates the games to play.
+     */
+    private final Supplier<Game> games;
+
+    /**
+     * The thread the next game is prepared on.
+     */
+    private final ExecutorService warmup = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "warmup");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Is set once the queue should stop after the current game.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * The amount of games that have been started.
+     */
+    private final AtomicLong started = new AtomicLong();
+
+    /**
+     * The latest switch over to first round latency, in nanoseconds.
+     */
+    private volatile long lastLatency = -1;
+
+    /**
+     * The highest switch over to first round latency, in nanoseconds.
+     */
+    private final AtomicLong maxLatency = new AtomicLong(-1);
+
+    /**
+     * A game that has been prepared and is ready to start.
+     */
+    private static final class ReadyGame {
+
+        /**
+         * The players the game has been prepared for.
+         */
+        private final List<Player> players;
+
+        /**
+         * The session, set up already.
+         */
+        private final GameSession session;
+
+        /**
+         * When the game was switched over to, by System.nanoTime().
+         */
+        private volatile long switchedAt;
+
+        /**
+         * Initializes a new instance of the ReadyGame class.
+         * @param players The players the game has been prepared for
+         * @param session The session, set up already
+         */
+        ReadyGame(List<Player> players, GameSession session) {
+            this.players = players;
+            this.session = session;
+        }
+    }
+
+    /**
+     * Initializes a new instance of the GameQueue class.
+     * @param controller The controller to play the games with
+     * @param games Creates the games to play, a new Game on each call
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public GameQueue(GameController controller, Supplier<Game> games) {
+        if(controller == null) {
+            throw new IllegalArgumentException("Parameter 'controller' must not be null");
+        }
+
+        if(games == null) {
+            throw new IllegalArgumentException("Parameter 'games' must not be null");
+        }
+
+        this.controller = controller;
+        this.games = games;
+    }
+
+    /**
+     * Initializes a new instance of the GameQueue class that plays games of a
+     * single mode, created from the controller's configuration.
+     * @param controller The controller to play the games with
+     * @param mode The mode of the games to play
+     */
+    public GameQueue(final GameController controller, final GameMode mode) {
+        this(controller, () -> controller.createGame(mode));
+    }
+
+    /**
+     * Starts playing. Must not be called while the controller plays other
+     * games, and only once per queue.
+     * @param count The amount of games to play, 0 to play until stopped
+     * @return Completes once the last game has been played, exceptionally if
+     * a game could not be prepared or did not finish
+     */
+    public CompletableFuture<Void> play(int count) {
+        final CompletableFuture<Void> done = new CompletableFuture<Void>();
+        this.stopped = false;
+        this.controller.applyConfiguration();
+        this.playNext(this.prepareAsync(), count, done);
+
+        // Nothing is left to prepare once the queue is through
+        done.whenComplete((result, error) -> warmup.shutdown());
+        return done;
+    }
+
+    /**
+     * Stops playing once the current game has ended. The game prepared next
+     * is torn down again.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Gets the amount of games that have been started.
+     * @return The amount of games
+     */
+    public long getStarted() {
+        return started.get();
+    }
+
+    /**
+     * Gets the time between the latest switch over and the first round of the
+     * game switched to.
+     * @return The latency, in nanoseconds, -1 if no round has started yet
+     */
+    public long getLastLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * Gets the highest time between a switch over and the first round of the
+     * game switched to.
+     * @return The latency, in nanoseconds, -1 if no round has started yet
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Switches over to the next game as soon as it is ready, and starts
+     * preparing the one after.
+     * @param next The next game
+     * @param remaining The amount of games left to play, 0 to play until stopped
+     * @param done Is completed once the queue is through
+     */
+    private void playNext(CompletableFuture<ReadyGame> next, final int remaining, final CompletableFuture<Void> done) {
+        next.whenComplete((ready, error) -> {
+            if(error != null) {
+                done.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+
+            if(this.stopped) {
+                ready.session.cancel();
+                done.complete(null);
+                return;
+            }
+
+            this.switchOver(ready, remaining, done);
+        });
+    }
+
+    /**
+     * Starts a prepared game. Configuration changes are picked up here, a game
+     * prepared for players that are gone is prepared again.
+     * @param ready The game to start
+     * @param remaining The amount of games left to play, 0 to play until stopped
+     * @param done Is completed once the queue is through
+     */
+    private void switchOver(ReadyGame ready, final int remaining, final CompletableFuture<Void> done) {
+        final long switchedAt = System.nanoTime();
+
+        ReadyGame current = ready;
+        try {
+            this.controller.applyConfiguration();
+            if(current.players != this.controller.getPlayers()) {
+                log.info("Players have changed, preparing " + current.session.getGame().getGameName() + " again");
+                current.session.cancel();
+                current = this.prepare();
+            }
+        } catch (RuntimeException ex) {
+            done.completeExceptionally(ex);
+            return;
+        }
+
+        current.switchedAt = switchedAt;
+        this.started.incrementAndGet();
+
+        // Prepare the game after this one while this one is played
+        final CompletableFuture<ReadyGame> following = remaining == 1 ? null : this.prepareAsync();
+        final int left = remaining == 0 ? 0 : remaining - 1;
+
+        current.session.start().whenComplete((score, error) -> {
+            if(error != null || following == null) {
+                if(following != null) {
+                    following.thenAccept(prepared -> prepared.session.cancel());
+                }
+
+                if(error != null) {
+                    done.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                } else {
+                    done.complete(null);
+                }
+                return;
+            }
+
+            this.playNext(following, left, done);
+        });
+    }
+
+    /**
+     * Prepares the next game in the background.
+     * @return The game, once prepared
+     */
+    private CompletableFuture<ReadyGame> prepareAsync() {
+        return CompletableFuture.supplyAsync(this::prepare, this.warmup);
+    }
+
+    /**
+     * Prepares the next game: creates it, seeds it, checks the players, plays
+     * it once in virtual time and sets it up.
+     * @return The prepared game
+     * @throws IllegalStateException if the players can not play or the game
+     * could not be set up
+     */
+    private ReadyGame prepare() {
+        final long start = System.nanoTime();
+        final List<Player> players = this.controller.getPlayers();
+        validate(players);
+
+        final Game game = this.games.get();
+        game.setRandom(this.controller.getRandomService().next());
+        this.dryRun(players, game.getRandom().getSeed());
+
+        final ReadyGame ready = new ReadyGame(players, this.controller.newSession(game));
+        ready.session.addListener(new GameListener() {
+            @Override
+            public void onGameEnded(Game game, HashMap<Player, Integer> score) {
+            }
+
+            @Override
+            public void onRoundStarted(Game game, int current, int total) {
+                if(current == 1) {
+                    firstRound(game, ready);
+                }
+            }
+
+            @Override
+            public void onRoundEnded(Game game, int current, int total) {
+            }
+        });
+
+        if(!ready.session.prepare()) {
+            throw new IllegalStateException(game.getGameName() + " could not be set up");
+        }
+
+        log.debug(game.getGameName() + " has been prepared in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return ready;
+    }
+
+    /**
+     * Plays the game once on a simulated board in virtual time, with the same
+     * random numbers and a governor of its own, so the real players' budgets
+     * stay untouched. Its events are not logged, they would give away the
+     * outcome. Failures are logged, the real game is played anyway.
+     * @param players The real players
+     * @param seed The seed of the real game
+     */
+    private void dryRun(List<Player> players, long seed) {
+        final VirtualClock clock = new VirtualClock();
+        final PlayerBoard board = new PlayerBoard(new SimulatedExpander(PlayerBoard.MAX_PLAYERS, clock), clock);
+        final Player[] simulated = new Player[players.size()];
+        for(int i=0; i<simulated.length; i++) {
+            final Player player = players.get(i);
+            simulated[i] = new Player(player.getName(), player.getSlot(), board);
+            simulated[i].setBuzzerOffset(player.getBuzzerOffset());
+        }
+
+        final Game game = this.games.get();
+        game.setRandom(new GameRandom(seed));
+        game.setShockGovernor(new ShockGovernor());
+        EventLog.INSTANCE.setMuted(true);
+        try {
+            if(Boolean.TRUE.equals(game.prepare(simulated))) {
+                try {
+                    game.play();
+                } finally {
+                    game.teardown();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("Dry run of " + game.getGameName() + " failed: " + ex.getMessage(), ex);
+        } finally {
+            EventLog.INSTANCE.setMuted(false);
+            board.shutdown();
+        }
+    }
+
+    /**
+     * Records the latency once a game's first round starts. Is called on the
+     * game's thread, so it logs through the EventLog.
+     * @param game The game
+     * @param ready The game as it was prepared
+     */
+    private void firstRound(Game game, ReadyGame ready) {
+        final long latency = System.nanoTime() - ready.switchedAt;
+        this.lastLatency = latency;
+
+        long max;
+        do {
+            max = this.maxLatency.get();
+        } while(latency > max && !this.maxLatency.compareAndSet(max, latency));
+
+        EventLog.INSTANCE.log(log, LogEvent.FIRST_ROUND, game.getGameName(), TimeUnit.NANOSECONDS.toMicros(latency));
+    }
+
+    /**
+     * Makes sure the players can play: there is at least one, all of them are
+     * on the same board and no two share a slot.
+     * @param players The players to check
+     * @throws IllegalStateException if the players can not play
+     */
+    private static void validate(List<Player> players) {
+        if(players == null || players.isEmpty()) {
+            throw new IllegalStateException("There are no players");
+        }
+
+        final PlayerBoard board = players.get(0).getBoard();
+        long slots = 0;
+        for(final Player player : players) {
+            if(player.getBoard() != board) {
+                throw new IllegalStateException(player.getName() + " is not on the same board as the others");
+            }
+
+            if((slots & player.getMask()) != 0) {
+                throw new IllegalStateException(player.getName() + " shares slot " + player.getSlot() + " with somebody else");
+            }
+            slots |= player.getMask();
+        }
+    }
+}
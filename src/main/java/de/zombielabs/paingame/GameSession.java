@@ -0,0 +1,386 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.input.BuzzerInput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * A GameSession is a single run of a Game, from setup over the game loop to
+ * teardown.
+ *
+ * The session is asynchronous: start() hands the game over to an Executor and
+ * returns a CompletableFuture that is completed with the final score once the
+ * game has been torn down. Sessions can be cancelled at any time and can be
+ * given a deadline, both will stop the game cooperatively (see Game.cancel()).
+ * Since the result is a CompletableFuture, sessions can be chained without
+ * blocking any thread.
+ *
+ * @author steps
+ */
+public class GameSession {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(GameSession.class);
+
+    /**
+     * Shared timer used to enforce session deadlines.
+     */
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "session-timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * The Game to play.
+     */
+    private final Game game;
+
+    /**
+     * The Players playing the game.
+     */
+    private final Player[] players;
+
+    /**
+     * The Executor the game will run on.
+     */
+    private final Executor executor;
+
+    /**
+     * The listeners to register with the game for the duration of this session.
+     */
+    private final List<GameListener> listeners = new ArrayList<GameListener>();
+
+    /**
+     * The buzzers to hand over to the game while it is played, may be null.
+     */
+    private BuzzerInput buzzerInput;
+
+    /**
+     * The result of this session.
+     */
+    private final CompletableFuture<HashMap<Player, Integer>> result = new CompletableFuture<HashMap<Player, Integer>>();
+
+    /**
+     * Makes sure the session is only started once.
+     */
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Guards the runner field.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The thread currently running the game, null if the game is not running.
+     */
+    private Thread runner;
+
+    /**
+     * The pending deadline, if any.
+     */
+    private ScheduledFuture<?> deadline;
+
+    /**
+     * Whether the game has been set up, null if setup has not been run yet.
+     */
+    private Boolean prepared;
+
+    /**
+     * Initializes a new instance of the GameSession class.
+     * @param game The game to play
+     * @param players The players playing the game
+     * @param executor The Executor to run the game on
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public GameSession(Game game, Player[] players, Executor executor) {
+        if(game == null) {
+            throw new IllegalArgumentException("Parameter 'game' must not be null");
+        }
+
+        if(players == null) {
+            throw new IllegalArgumentException("Parameter 'players' must not be null");
+        }
+
+        if(executor == null) {
+            throw new IllegalArgumentException("Parameter 'executor' must not be null");
+        }
+
+        this.game = game;
+        this.players = players;
+        this.executor = executor;
+
+        // However the result gets completed (cancel(), deadline, somebody
+        // cancelling the future directly), make sure the game stops as well
+        this.result.whenComplete((score, error) -> {
+            if(error != null) {
+                stopGame();
+
+                // Never going to be started, release a game set up ahead
+                if(started.compareAndSet(false, true)) {
+                    abandon();
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a GameListener that will be registered with the game while this
+     * session runs. Must be called before start().
+     * @param listener The listener to add
+     * @return This session
+     */
+    public GameSession addListener(GameListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Sets the buzzer input the game will listen to while this session runs.
+     * Must be called before start().
+     * @param buzzerInput The BuzzerInput to use
+     * @return This session
+     */
+    public GameSession setBuzzerInput(BuzzerInput buzzerInput) {
+        this.buzzerInput = buzzerInput;
+        return this;
+    }
+
+    /**
+     * Gets the Game played in this session.
+     * @return The Game
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Sets the game up ahead of start(), e.g. while another game is still
+     * played, so start() can go straight to the game loop. Is called on the
+     * calling thread, the game must not touch any outputs during setup.
+     * Calling this more than once has no further effect. Logs the seed the
+     * game is played with, so it can be played again.
+     * @return true if the game has been set up
+     */
+    public boolean prepare() {
+        synchronized(this.lock) {
+            if(this.prepared == null) {
+                this.prepared = this.game.prepare(this.players);
+                log.info(this.game.getGameName() + " is played with seed " + this.game.getRandom().getSeed());
+            }
+            return Boolean.TRUE.equals(this.prepared);
+        }
+    }
+
+    /**
+     * Starts this session. Calling this more than once has no further effect.
+     * @return The future result, i.e. the final score. Completes exceptionally
+     * with a CancellationException if the session was cancelled, with a
+     * TimeoutException if the deadline passed and with an IllegalStateException
+     * if the game could not be set up.
+     */
+    public CompletableFuture<HashMap<Player, Integer>> start() {
+        if(this.started.compareAndSet(false, true)) {
+            this.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runSession();
+                }
+            });
+        }
+
+        return this.result;
+    }
+
+    /**
+     * Starts this session and schedules a deadline. Once the deadline passes,
+     * the game is stopped and the result completes with a TimeoutException.
+     * @param timeout The maximum time the session may take
+     * @param unit The unit of timeout
+     * @return The future result, see start()
+     */
+    public CompletableFuture<HashMap<Player, Integer>> start(long timeout, TimeUnit unit) {
+        synchronized(this.lock) {
+            if(this.deadline == null && !this.result.isDone()) {
+                this.deadline = timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        result.completeExceptionally(new TimeoutException(game.getGameName() + " did not finish in time"));
+                    }
+                }, timeout, unit);
+            }
+        }
+
+        return this.start();
+    }
+
+    /**
+     * Starts this session and, once it completed successfully, the given one.
+     * Does not block. Should this session fail or be cancelled, the next one
+     * is cancelled, so a game set up ahead is torn down. Cancelling the
+     * returned future cancels whichever session is running.
+     * @param next The session to play afterwards
+     * @return The future result of the next session
+     */
+    public CompletableFuture<HashMap<Player, Integer>> then(final GameSession next) {
+        this.result.whenComplete((score, error) -> {
+            if(error != null) {
+                next.cancel();
+            }
+        });
+
+        final CompletableFuture<HashMap<Player, Integer>> chained = this.start().thenCompose(score -> next.start());
+        chained.whenComplete((score, error) -> {
+            if(error != null) {
+                this.cancel();
+                next.cancel();
+            }
+        });
+        return chained;
+    }
+
+    /**
+     * Cancels this session. The game will stop at the next opportunity and be
+     * torn down, the result completes with a CancellationException.
+     * @return true if the session was cancelled by this call
+     */
+    public boolean cancel() {
+        return this.result.completeExceptionally(new CancellationException(this.game.getGameName() + " has been cancelled"));
+    }
+
+    /**
+     * Runs the whole lifecycle of the game: setup, loop and teardown. Is
+     * called on the executor.
+     */
+    private void runSession() {
+        synchronized(this.lock) {
+            if(this.result.isDone()) {
+                log.info(this.game.getGameName() + " was cancelled before it started");
+                this.abandon();
+                return;
+            }
+            this.runner = Thread.currentThread();
+        }
+
+        boolean setUp = false;
+        HashMap<Player, Integer> score = null;
+        Throwable error = null;
+
+        try {
+            if(!this.prepare()) {
+                throw new IllegalStateException(this.game.getGameName() + " could not be set up");
+            }
+            setUp = true;
+
+            for(final GameListener listener : this.listeners) {
+                this.game.addListener(listener);
+            }
+
+            if(this.buzzerInput != null) {
+                this.buzzerInput.addListener(this.game);
+            }
+
+            // Might have been cancelled while setting up
+            if(this.result.isDone()) {
+                this.game.cancel();
+            }
+
+            score = this.game.play();
+        } catch (InterruptedException ex) {
+            error = new CancellationException(ex.getMessage());
+        } catch (Throwable ex) {
+            // Errors too, e.g. a missing native library, or nobody ever hears of the result
+            log.error("Error while playing " + this.game.getGameName() + ": " + ex.getMessage(), ex);
+            error = ex;
+        } finally {
+            try {
+                if(this.buzzerInput != null) {
+                    this.buzzerInput.removeListener(this.game);
+                }
+
+                for(final GameListener listener : this.listeners) {
+                    this.game.removeListener(listener);
+                }
+
+                if(setUp) {
+                    this.teardown();
+                }
+            } finally {
+                synchronized(this.lock) {
+                    this.runner = null;
+                    if(this.deadline != null) {
+                        this.deadline.cancel(false);
+                    }
+                    // Do not leak a late interrupt into the executor's next task
+                    Thread.interrupted();
+                }
+
+                if(error != null) {
+                    this.result.completeExceptionally(error);
+                } else {
+                    this.result.complete(score);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tears down a game that has been set up ahead but is not going to be
+     * played.
+     */
+    private void abandon() {
+        final boolean setUp;
+        synchronized(this.lock) {
+            setUp = Boolean.TRUE.equals(this.prepared);
+        }
+
+        if(setUp) {
+            this.teardown();
+        }
+    }
+
+    /**
+     * Tears the game down, never throws.
+     */
+    private void teardown() {
+        try {
+            if(!Boolean.TRUE.equals(this.game.teardown())) {
+                log.warn(this.game.getGameName() + " could not be torn down properly");
+            }
+        } catch (Throwable ex) {
+            log.error("Error while tearing down " + this.game.getGameName() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Asks the game to stop and wakes it up if it is currently waiting.
+     */
+    private void stopGame() {
+        synchronized(this.lock) {
+            if(this.runner != null) {
+                this.game.cancel();
+                this.runner.interrupt();
+            }
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package de.zombielabs.paingame;
 
-import com.pi4j.io.gpio.GpioController;
 import com.pi4j.io.gpio.GpioFactory;
-import com.pi4j.io.gpio.GpioPinDigitalInput;
-import com.pi4j.io.gpio.GpioPinDigitalOutput;
-import com.pi4j.io.gpio.PinPullResistance;
-import com.pi4j.io.gpio.PinState;
-import com.pi4j.io.gpio.RaspiPin;
-import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.batch.BatchRunner;
+import de.zombielabs.paingame.batch.BinaryResultWriter;
+import de.zombielabs.paingame.batch.CsvResultWriter;
+import de.zombielabs.paingame.batch.ResultWriter;
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.config.ConfigurationWatcher;
 import de.zombielabs.paingame.games.GameMode;
-import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.random.RandomService;
 import gnu.getopt.Getopt;
 import gnu.getopt.LongOpt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
@@ -28,7 +37,8 @@ import org.apache.log4j.PropertyConfigurator;
 public class Paingame {
     
     /**
-     * If this is true, no actual pin interaction will happen.
+     * If this is true, no actual pin interaction will happen, the board is 
+     * simulated instead.
      */
     public static final boolean DEVELOPMENT = true;
     
@@ -43,31 +53,62 @@ public class Paingame {
     private static GameMode mode;
     
     /**
-     * The game modes available. 
+     * The configuration file to load and watch, null to use the defaults.
      */
-    private static final HashMap<GameMode, Game> availableGames = new HashMap<GameMode, Game>() {{
-        put(GameMode.SHOCKY, new Shocky(10, 2000, 10));
-    }};
+    private static String configFile;
     
     /**
-     * The name of the first Player.
+     * Watches the configuration file, null if there is none.
      */
-    private static String namePlayer1 = "Player 1";
+    private static ConfigurationWatcher watcher;
     
     /**
-     * The name of the second Player.
+     * The amount of games to play back to back, 0 to play forever.
      */
-    private static String namePlayer2 = "Player 2";
+    private static int games = 1;
     
     /**
-     * The name of the third Player.
+     * How often to give the cue when calibrating the buzzers, 0 to skip the 
+     * calibration.
      */
-    private static String namePlayer3 = "Player 3";
+    private static int calibrationTrials = 0;
     
     /**
-     * The name of the fourth Player.
+     * The seed to derive all games' random numbers from, null to seed from
+     * secure entropy. Is logged on startup, so all games can be played again.
      */
-    private static String namePlayer4 = "Player 4";
+    private static Long seed;
+    
+    /**
+     * The names of the players given on the command line, in order. Players
+     * without a name here keep the configured one.
+     */
+    private static final List<String> playerNames = new ArrayList<String>();
+    
+    /**
+     * The amount of games to play headless in a batch, 0 to play for real.
+     */
+    private static int batchGames = 0;
+    
+    /**
+     * The amount of batch games to play at the same time.
+     */
+    private static int jobs = 1;
+    
+    /**
+     * The file to write the batch results to, null for the default.
+     */
+    private static String output;
+    
+    /**
+     * If true, batch results are written in the binary format instead of CSV.
+     */
+    private static boolean binary = false;
+    
+    /**
+     * How long to wait for the log to be written on exit, in seconds.
+     */
+    private static final long EVENT_LOG_FLUSH_TIMEOUT = 5;
     
     /**
      * Parses the command line arguments.
@@ -77,13 +118,18 @@ public class Paingame {
         
         final LongOpt[] options = new LongOpt[] {
             new LongOpt("game", LongOpt.REQUIRED_ARGUMENT, null, 'g'),
-            new LongOpt("player1", LongOpt.OPTIONAL_ARGUMENT, null, 'a'),
-            new LongOpt("player2", LongOpt.OPTIONAL_ARGUMENT, null, 'b'),
-            new LongOpt("player3", LongOpt.OPTIONAL_ARGUMENT, null, 'c'),
-            new LongOpt("player4", LongOpt.OPTIONAL_ARGUMENT, null, 'd')
+            new LongOpt("player", LongOpt.REQUIRED_ARGUMENT, null, 'p'),
+            new LongOpt("config", LongOpt.REQUIRED_ARGUMENT, null, 'f'),
+            new LongOpt("games", LongOpt.REQUIRED_ARGUMENT, null, 'n'),
+            new LongOpt("calibrate", LongOpt.OPTIONAL_ARGUMENT, null, 'k'),
+            new LongOpt("seed", LongOpt.REQUIRED_ARGUMENT, null, 's'),
+            new LongOpt("batch", LongOpt.REQUIRED_ARGUMENT, null, 'b'),
+            new LongOpt("jobs", LongOpt.REQUIRED_ARGUMENT, null, 'j'),
+            new LongOpt("output", LongOpt.REQUIRED_ARGUMENT, null, 'o'),
+            new LongOpt("binary", LongOpt.NO_ARGUMENT, null, 'B')
         };
         
-        Getopt g = new Getopt("paingame", args, "gabcd:", options);
+        Getopt g = new Getopt("paingame", args, "g:p:f:n:k::s:b:j:o:B", options);
         g.setOpterr(true);
         
         int c = -1;
@@ -95,17 +141,34 @@ public class Paingame {
                     mode = GameMode.valueOf(gameMode.toUpperCase());
                     log.info("Game mode set: " + mode);
                     break;
-                } case 'a': {
-                    namePlayer1 = g.getOptarg();
+                } case 'p': {
+                    // Every --player names the next player
+                    playerNames.add(g.getOptarg());
+                    break;
+                } case 'f': {
+                    configFile = g.getOptarg();
+                    break;
+                } case 'n': {
+                    games = Integer.parseInt(g.getOptarg());
+                    break;
+                } case 'k': {
+                    final String trials = g.getOptarg();
+                    calibrationTrials = trials == null ? 10 : Integer.parseInt(trials);
+                    break;
+                } case 's': {
+                    seed = Long.parseLong(g.getOptarg());
                     break;
                 } case 'b': {
-                    namePlayer2 = g.getOptarg();
+                    batchGames = Integer.parseInt(g.getOptarg());
+                    break;
+                } case 'j': {
+                    jobs = Integer.parseInt(g.getOptarg());
                     break;
-                } case 'c': {
-                    namePlayer3 = g.getOptarg();
+                } case 'o': {
+                    output = g.getOptarg();
                     break;
-                } case 'd': {
-                    namePlayer4 = g.getOptarg();
+                } case 'B': {
+                    binary = true;
                     break;
                 } default: {
                     log.warn("Unrecognized command line argument: " + g.getOptarg());
@@ -115,58 +178,72 @@ public class Paingame {
         }
     }
     
-    private static List<Player> initPlayers() {
-        // Get a GPIO controller
-        final GpioController gpio = GpioFactory.getInstance();
-        
-        // Setup the shock pins for the players
-        final GpioPinDigitalOutput p1_shockPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_01, PinState.LOW);
-        final GpioPinDigitalOutput p2_shockPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_02, PinState.LOW);
-        final GpioPinDigitalOutput p3_shockPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_03, PinState.LOW);
-        final GpioPinDigitalOutput p4_shockPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_04, PinState.LOW);
-        
-        // Setup the status pins for the players
-        final GpioPinDigitalOutput p1_ledPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_05, PinState.LOW);
-        final GpioPinDigitalOutput p2_ledPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_06, PinState.LOW);
-        final GpioPinDigitalOutput p3_ledPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_07, PinState.LOW);
-        final GpioPinDigitalOutput p4_ledPin = gpio.provisionDigitalOutputPin(RaspiPin.GPIO_08, PinState.LOW);
+    /**
+     * Builds the configuration source. If a configuration file was given, it
+     * is watched and reloaded on changes. Otherwise, the bundled defaults are
+     * used, with the player names taken from the command line.
+     * @return Where to get the latest configuration from
+     * @throws IOException If the configuration could not be read
+     */
+    private static Supplier<Configuration> initConfiguration() throws IOException {
+        if(configFile != null) {
+            log.info("Loading configuration from " + configFile);
+            watcher = new ConfigurationWatcher(new File(configFile));
+            watcher.start();
+            return watcher::getConfiguration;
+        }
         
-        // Setup the buzzer pins for the players
-        final GpioPinDigitalInput p1_buzzerPin = gpio.provisionDigitalInputPin(RaspiPin.GPIO_09, PinPullResistance.PULL_DOWN);
-        final GpioPinDigitalInput p2_buzzerPin = gpio.provisionDigitalInputPin(RaspiPin.GPIO_10, PinPullResistance.PULL_DOWN);
-        final GpioPinDigitalInput p3_buzzerPin = gpio.provisionDigitalInputPin(RaspiPin.GPIO_11, PinPullResistance.PULL_DOWN);
-        final GpioPinDigitalInput p4_buzzerPin = gpio.provisionDigitalInputPin(RaspiPin.GPIO_12, PinPullResistance.PULL_DOWN);
+        final Properties defaults = ConfigurationLoader.loadDefaults();
+        for(int i=0; i<playerNames.size(); i++) {
+            if(defaults.getProperty("player." + (i + 1) + ".name") == null) {
+                log.warn("Only " + i + " players are configured, ignoring '" + playerNames.get(i) + "'");
+                break;
+            }
+            defaults.setProperty("player." + (i + 1) + ".name", playerNames.get(i));
+        }
         
-        // Make sure everything is handled correctly on shutdown
-        p1_shockPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p2_shockPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p3_shockPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p4_shockPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p1_ledPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p2_ledPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p3_ledPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
-        p4_ledPin.setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
+        final Configuration configuration = ConfigurationLoader.parse(defaults);
+        return () -> configuration;
+    }
+    
+    /**
+     * Plays the batch headless: on simulated boards, in virtual time and with
+     * seeds derived from --seed, 0 if none is given. The results are written
+     * to --output, results.csv or results.bin by default.
+     * @throws InterruptedException If the batch was interrupted
+     * @throws IOException If the configuration could not be read or the
+     * results could not be written
+     */
+    private static void runBatch() throws InterruptedException, IOException {
+        final Configuration configuration = configFile != null ? ConfigurationLoader.load(new File(configFile)) : initConfiguration().get();
+        if(output == null) {
+            output = binary ? "results.bin" : "results.csv";
+        }
+        log.info("Playing " + batchGames + " games of " + mode + " headless, " + jobs + " at a time, results go to " + output);
         
-        // Initialize players
-        final Player player1 = new Player(namePlayer1, p1_shockPin, p1_ledPin, p1_buzzerPin);
-        final Player player2 = new Player(namePlayer2, p2_shockPin, p2_ledPin, p2_buzzerPin);
-        final Player player3 = new Player(namePlayer3, p3_shockPin, p3_ledPin, p3_buzzerPin);
-        final Player player4 = new Player(namePlayer4, p4_shockPin, p4_ledPin, p4_buzzerPin);
+        // Everything but errors is in the results
+        LogManager.getRootLogger().setLevel(Level.ERROR);
         
-        return new ArrayList<Player>() {{
-            add(player1);
-            add(player2);
-            add(player3);
-            add(player4);
-        }};
+        final OutputStream out = new FileOutputStream(output);
+        final ResultWriter writer = binary ? new BinaryResultWriter(out) : new CsvResultWriter(out);
+        try {
+            new BatchRunner(configuration, mode)
+                    .setSeed(seed == null ? 0 : seed)
+                    .setParallelism(jobs)
+                    .run(batchGames, writer);
+        } finally {
+            writer.close();
+            EventLog.INSTANCE.flush(EVENT_LOG_FLUSH_TIMEOUT, TimeUnit.SECONDS);
+        }
     }
     
     /**
      * The Paingame's main entry point.
      * @param args Command line arguments
      * @throws InterruptedException If the game was interrupted
+     * @throws IOException If the configuration could not be read
      */
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, IOException {
         // First of all, load the logging configuration from the resources
         InputStream in = Class.class.getResourceAsStream("/de/zombielabs/paingame/config/log4j.properties");
         PropertyConfigurator.configure(in);
@@ -176,19 +253,48 @@ public class Paingame {
         // Parse command line arguments
         parseCommandLine(args);
         
-        GameController controller = new GameController(initPlayers());
-        
         // Find game
-        Game game = availableGames.get(GameMode.SHOCKY);
+        if(mode == null) {
+            mode = GameMode.SHOCKY;
+        }
         
-        if(availableGames.containsKey(mode)) {
-            log.info("Loading game '" + mode + "'...");
-            game = availableGames.get(mode);
+        if(batchGames > 0) {
+            runBatch();
+            return;
         }
-
-        controller.play(game);
         
-        // Reaching this means: end the game
-        GpioFactory.getInstance().shutdown();
+        final PlayerFactory playerFactory = DEVELOPMENT ? new PlayerFactory() : new PlayerFactory(GpioFactory.getInstance());
+        GameController controller = new GameController(initConfiguration(), playerFactory);
+        controller.setRandomService(seed == null ? new RandomService() : new RandomService(seed));
+        
+        log.info("Loading game '" + mode + "'...");
+
+        try {
+            if(calibrationTrials > 0) {
+                log.info(controller.calibrate(calibrationTrials));
+            }
+            
+            // Configuration changes are picked up between two games
+            new GameQueue(controller, mode).play(games).get();
+        } catch (ExecutionException ex) {
+            log.error("Game did not finish: " + ex.getCause().getMessage(), ex.getCause());
+        } finally {
+            // Reaching this means: end the game, once the winners have seen their LEDs
+            try {
+                controller.awaitOutputs();
+            } catch (InterruptedException ex) {
+                log.warn("Interrupted while showing the winners");
+            }
+            controller.shutdown();
+            if(watcher != null) {
+                watcher.stop();
+            }
+            if(!DEVELOPMENT) {
+                GpioFactory.getInstance().shutdown();
+            }
+            
+            // The log's thread would not outlive us
+            EventLog.INSTANCE.flush(EVENT_LOG_FLUSH_TIMEOUT, TimeUnit.SECONDS);
+        }
     }
 }
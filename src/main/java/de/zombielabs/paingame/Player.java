@@ -4,14 +4,11 @@
  */
 package de.zombielabs.paingame;
 
-//import com.pi4j.io.gpio.GpioPinDigitalOutput;
-
-import com.pi4j.io.gpio.GpioPinDigitalInput;
-import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import de.zombielabs.paingame.io.PlayerBoard;
 
 
 /**
- * The Player class is used to wrap all operations to identify a player in a 
+ * The Player class is used to wrap all operations to identify a player in a
  * convenient class.
  * @author steps
  */
@@ -20,21 +17,23 @@ public class Player {
      * The name of the player. Usually "player 1" or similar.
      */
     private String name;
-    
+
     /**
-     * The output pin to toggle in order to shock the player.
+     * The player's slot on the board, i.e. the bit that is the player in all
+     * bitmasks.
      */
-    private GpioPinDigitalOutput shockPin;
-    
+    private final int slot;
+
     /**
-     * The output pin that is connected to an LED indicating the player.
+     * The board the player's shock device, LED and buzzer are connected to.
      */
-    private GpioPinDigitalOutput ledPin;
-    
+    private final PlayerBoard board;
+
     /**
-     * The input pin that is listening to the player's buzzer.
+     * The latency of the player's buzzer, in nanoseconds. Is subtracted from
+     * the time of every buzzer press, see BuzzerCalibration.
      */
-    private GpioPinDigitalInput buzzerPin;
+    private volatile long buzzerOffset;
 
     /**
      * Gets the name of the player.
@@ -53,93 +52,88 @@ public class Player {
     }
 
     /**
-     * Gets the pin that needs to be toggled in order to shock this player.
-     * @return The GpioPinDigitalOutput to toggle in order to shock this player
+     * Gets the player's slot on the board.
+     * @return The slot, 0 to 63
      */
-    public GpioPinDigitalOutput getShockPin() {
-        return shockPin;
+    public int getSlot() {
+        return slot;
     }
 
     /**
-     * Sets the pin to toggle in order to shock this player.
-     * @param pin The GpioPinDigitalOutput to associate with the player.
+     * Gets the bitmask that is only this player.
+     * @return A bitmask with only the player's slot set
      */
-    public void setShockPin(GpioPinDigitalOutput pin) {
-        this.shockPin = pin;
+    public long getMask() {
+        return 1L << slot;
     }
 
     /**
-     * Gets the pin that is connected to the LED that is the player
-     * @return A GpioPinDigitalOutput that is connected to an LED indicating the player
+     * Gets the board the player is connected to.
+     * @return The PlayerBoard
      */
-    public GpioPinDigitalOutput getLEDPin() {
-        return ledPin;
+    public PlayerBoard getBoard() {
+        return board;
     }
 
     /**
-     * Sets the pin that is connected to the LED that is the player
-     * @param playerPin The GpioPinDigitalOutput that is connected to the LED that is the player
+     * Gets the latency of the player's buzzer.
+     * @return The latency to subtract from buzzer presses, in nanoseconds
      */
-    public void setLEDPin(GpioPinDigitalOutput playerPin) {
-        this.ledPin = playerPin;
+    public long getBuzzerOffset() {
+        return buzzerOffset;
     }
 
     /**
-     * Gets the input pin that is the player's buzzer.
-     * @return The GpioPinDigitalInput that is the player's buzzer pin.
+     * Sets the latency of the player's buzzer.
+     * @param buzzerOffset The latency to subtract from buzzer presses, in nanoseconds
      */
-    public GpioPinDigitalInput getBuzzerPin() {
-        return buzzerPin;
+    public void setBuzzerOffset(long buzzerOffset) {
+        this.buzzerOffset = buzzerOffset;
     }
 
-    /**
-     * Sets the player's buzzer pin
-     * @param buzzerPin The GpioPinDigitalInput that is the new player's buzzer pin.
-     */
-    public void setBuzzerPin(GpioPinDigitalInput buzzerPin) {
-        this.buzzerPin = buzzerPin;
-    }
-    
 
     /**
      * Initializes a new instance of the Player class.
      * @param name The player's name
-     * @param shockPin The pin to toggle in order to shock the player
-     * @param ledPin The pin that is the player's LED
-     * @throws IllegalArgumentException if either name or any pin is null or empty
+     * @param slot The player's slot on the board
+     * @param board The board the player is connected to
+     * @throws IllegalArgumentException if either name or board is null or empty
+     * or the slot is not on the board
      */
-    public Player(String name, GpioPinDigitalOutput shockPin, GpioPinDigitalOutput ledPin, GpioPinDigitalInput buzzerPin) {
+    public Player(String name, int slot, PlayerBoard board) {
         if(name == null || name.isEmpty()) {
             throw new IllegalArgumentException("Parameter 'name' must neither be "
                     + "null, nor empty");
         }
-        
-        if(shockPin == null) {
-            throw new IllegalArgumentException("Parameter 'shockPin' must not be null");
-        }
-        
-        if(ledPin == null) {
-            throw new IllegalArgumentException("Parameter 'ledPin' must not be null");
+
+        if(board == null) {
+            throw new IllegalArgumentException("Parameter 'board' must not be null");
         }
-        
-        if(buzzerPin == null) {
-            throw new IllegalArgumentException("Parameter 'buzzerPin' must not be null");
+
+        if(slot < 0 || slot >= board.getCapacity()) {
+            throw new IllegalArgumentException("Parameter 'slot' must be between 0 and " + (board.getCapacity() - 1));
         }
-        
+
         this.name = name;
-        this.shockPin = shockPin;
-        this.ledPin = ledPin;
-        this.buzzerPin = buzzerPin;
+        this.slot = slot;
+        this.board = board;
     }
-    
+
+    /**
+     * Checks whether the player's buzzer is pressed right now.
+     * @return true if the buzzer is pressed
+     */
+    public boolean isBuzzerPressed() {
+        return (this.board.readBuzzers() & this.getMask()) != 0;
+    }
+
     /**
      * Resets this player's output pins, i.e. sets them to LOW.
      */
     public void resetOutput() {
-        this.ledPin.low();
-        this.shockPin.low();
+        this.board.clear(this.getMask(), this.getMask());
     }
-    
+
     /**
      * Gets a String that represents this Player.
      * @return The player's name.
@@ -148,5 +142,5 @@ public class Player {
     public String toString() {
         return this.name;
     }
-    
+
 }
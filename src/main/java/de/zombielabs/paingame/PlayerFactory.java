@@ -0,0 +1,207 @@
+package de.zombielabs.paingame;
+
+import com.pi4j.gpio.extension.mcp.MCP23017GpioProvider;
+import com.pi4j.gpio.extension.mcp.MCP23017Pin;
+import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalInput;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.GpioProvider;
+import com.pi4j.io.gpio.Pin;
+import com.pi4j.io.gpio.PinPullResistance;
+import com.pi4j.io.gpio.PinState;
+import com.pi4j.io.gpio.RaspiPin;
+import com.pi4j.io.i2c.I2CBus;
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.PinAddress;
+import de.zombielabs.paingame.config.PlayerConfiguration;
+import de.zombielabs.paingame.io.GpioExpander;
+import de.zombielabs.paingame.io.IoExpander;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PlayerFactory sets up the board of all configured players and creates
+ * the Player instances. Players can be released again, so the pins can be
+ * provisioned differently once the configuration changes.
+ *
+ * Without a GpioController, the board is simulated and no pins are touched.
+ * @author steps
+ */
+public class PlayerFactory {
+
+    /**
+     * Maps pin numbers, as used in the configuration, to the actual pins.
+     */
+    private static final Pin[] PINS = new Pin[] {
+        RaspiPin.GPIO_00, RaspiPin.GPIO_01, RaspiPin.GPIO_02, RaspiPin.GPIO_03,
+        RaspiPin.GPIO_04, RaspiPin.GPIO_05, RaspiPin.GPIO_06, RaspiPin.GPIO_07,
+        RaspiPin.GPIO_08, RaspiPin.GPIO_09, RaspiPin.GPIO_10, RaspiPin.GPIO_11,
+        RaspiPin.GPIO_12, RaspiPin.GPIO_13, RaspiPin.GPIO_14, RaspiPin.GPIO_15,
+        RaspiPin.GPIO_16, RaspiPin.GPIO_17, RaspiPin.GPIO_18, RaspiPin.GPIO_19,
+        RaspiPin.GPIO_20
+    };
+
+    /**
+     * The GpioController used to provision pins, null to simulate the board.
+     */
+    private final GpioController gpio;
+
+    /**
+     * The clock the boards go by.
+     */
+    private final Clock clock;
+
+    /**
+     * The providers of all expander chips set up so far, by I2C address.
+     */
+    private final Map<Integer, GpioProvider> expanders = new HashMap<Integer, GpioProvider>();
+
+    /**
+     * Initializes a new instance of the PlayerFactory class that simulates the
+     * board.
+     */
+    public PlayerFactory() {
+        this(SystemClock.INSTANCE);
+    }
+
+    /**
+     * Initializes a new instance of the PlayerFactory class that simulates the
+     * board with the given clock, e.g. a VirtualClock.
+     * @param clock The clock the board goes by
+     */
+    public PlayerFactory(Clock clock) {
+        this.gpio = null;
+        this.clock = clock;
+    }
+
+    /**
+     * Initializes a new instance of the PlayerFactory class.
+     * @param gpio The GpioController used to provision pins, null to simulate
+     * the board
+     */
+    public PlayerFactory(GpioController gpio) {
+        this.gpio = gpio;
+        this.clock = SystemClock.INSTANCE;
+    }
+
+    /**
+     * Sets up the board of all configured players and creates the players.
+     * @param configuration The configuration to use
+     * @return All players, in the configured order. Player n is in slot n - 1.
+     */
+    public List<Player> create(Configuration configuration) {
+        final List<PlayerConfiguration> configs = configuration.getPlayers();
+        final IoExpander expander = this.gpio == null ? new SimulatedExpander(configs.size(), this.clock) : this.provision(configuration);
+        final PlayerBoard board = new PlayerBoard(expander, this.clock);
+        final List<Player> players = new ArrayList<Player>();
+
+        for(int slot=0; slot<configs.size(); slot++) {
+            final Player player = new Player(configs.get(slot).getName(), slot, board);
+            player.setBuzzerOffset(TimeUnit.MICROSECONDS.toNanos(configs.get(slot).getBuzzerOffset()));
+            players.add(player);
+        }
+
+        return players;
+    }
+
+    /**
+     * Switches off the players' outputs and releases their board.
+     * @param players The players to release
+     */
+    public void release(List<Player> players) {
+        if(!players.isEmpty()) {
+            players.get(0).getBoard().shutdown();
+        }
+    }
+
+    /**
+     * Provisions the pins of all configured players.
+     * @param configuration The configuration to use
+     * @return The IoExpander driving those pins
+     */
+    private IoExpander provision(Configuration configuration) {
+        final List<PlayerConfiguration> configs = configuration.getPlayers();
+        final GpioPinDigitalOutput[] shockPins = new GpioPinDigitalOutput[configs.size()];
+        final GpioPinDigitalOutput[] ledPins = new GpioPinDigitalOutput[configs.size()];
+        final GpioPinDigitalInput[] buzzerPins = new GpioPinDigitalInput[configs.size()];
+        long activeLow = 0;
+
+        for(int slot=0; slot<configs.size(); slot++) {
+            final PlayerConfiguration config = configs.get(slot);
+            shockPins[slot] = this.output(configuration, config.getShockPin());
+            ledPins[slot] = this.output(configuration, config.getLEDPin());
+            buzzerPins[slot] = this.input(configuration, config.getBuzzerPin());
+            if(config.getBuzzerPin().getExpander() != PinAddress.RASPI) {
+                activeLow |= 1L << slot;
+            }
+
+            // Make sure everything is handled correctly on shutdown
+            shockPins[slot].setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
+            ledPins[slot].setShutdownOptions(true, PinState.LOW, PinPullResistance.OFF);
+        }
+
+        return new GpioExpander(this.gpio, shockPins, ledPins, buzzerPins, activeLow);
+    }
+
+    /**
+     * Provisions an output pin.
+     * @param configuration The configuration, for the expanders' addresses
+     * @param address The address of the pin
+     * @return The provisioned pin, LOW
+     */
+    private GpioPinDigitalOutput output(Configuration configuration, PinAddress address) {
+        if(address.getExpander() == PinAddress.RASPI) {
+            return this.gpio.provisionDigitalOutputPin(PINS[address.getPin()], PinState.LOW);
+        }
+
+        return this.gpio.provisionDigitalOutputPin(this.expander(configuration, address), MCP23017Pin.ALL[address.getPin()], PinState.LOW);
+    }
+
+    /**
+     * Provisions a buzzer's input pin. The Pi's own GPIOs are pulled down, the
+     * buzzer connects them to 3.3 V. An MCP23017 can only pull its inputs up,
+     * so there the buzzer connects the pin to ground and is active low.
+     * @param configuration The configuration, for the expanders' addresses
+     * @param address The address of the pin
+     * @return The provisioned pin, pulled down on the Pi and up on expanders
+     */
+    private GpioPinDigitalInput input(Configuration configuration, PinAddress address) {
+        if(address.getExpander() == PinAddress.RASPI) {
+            return this.gpio.provisionDigitalInputPin(PINS[address.getPin()], PinPullResistance.PULL_DOWN);
+        }
+
+        return this.gpio.provisionDigitalInputPin(this.expander(configuration, address), MCP23017Pin.ALL[address.getPin()], PinPullResistance.PULL_UP);
+    }
+
+    /**
+     * Gets the provider of the expander chip a pin belongs to, sets it up on
+     * first use.
+     * @param configuration The configuration, for the expanders' addresses
+     * @param address The address of the pin
+     * @return The GpioProvider of the expander chip
+     * @throws IllegalStateException if the chip could not be set up
+     */
+    private GpioProvider expander(Configuration configuration, PinAddress address) {
+        final int i2cAddress = configuration.getExpanders().get(address.getExpander() - 1);
+
+        GpioProvider provider = this.expanders.get(i2cAddress);
+        if(provider == null) {
+            try {
+                provider = new MCP23017GpioProvider(I2CBus.BUS_1, i2cAddress);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to set up expander at I2C address " + Integer.toHexString(i2cAddress), ex);
+            }
+            this.expanders.put(i2cAddress, provider);
+        }
+
+        return provider;
+    }
+}
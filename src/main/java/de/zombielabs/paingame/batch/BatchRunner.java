@@ -0,0 +1,324 @@
+package de.zombielabs.paingame.batch;
+
+import de.zombielabs.paingame.GameController;
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.PlayerFactory;
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.PlayerConfiguration;
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.games.GameMode;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.random.RandomService;
+import de.zombielabs.paingame.safety.ShockGovernor;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The BatchRunner plays a game mode over and over without any hardware, to
+ * compare builds, track performance and check the balance of a game.
+ *
+ * Every game is played on a simulated board of its own, in virtual time, with
+ * a ShockGovernor of its own and its own seed, derived from the batch's seed.
+ * So a game's result only depends on the configuration, the mode and the
+ * batch's seed, no matter how many games are played in parallel. Results are
+ * written in the order of the games, as soon as they are in.
+ * @author steps
+ */
+public class BatchRunner {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(BatchRunner.class);
+
+    /**
+     * How long to let the clock run after a game, so the winners' LEDs and
+     * all other pulses are switched off again, in seconds.
+     */
+    private static final long SETTLE_TIME = 10;
+
+    /**
+     * Plays each game right on the worker that starts it, instead of a thread
+     * of the game's controller.
+     */
+    private static final Executor WORKER = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    /**
+     * The configuration the games are created from.
+     */
+    private final Configuration configuration;
+
+    /**
+     * The mode of the games.
+     */
+    private final GameMode mode;
+
+    /**
+     * The seed all game seeds are derived from.
+     */
+    private long seed = 0;
+
+    /**
+     * The amount of games to play at the same time.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Measures the rounds of a game on the wall clock. Is only used by the
+     * game's thread, and read once the game is over.
+     */
+    private static final class RoundTimer implements GameListener {
+
+        /**
+         * When the current round started, by System.nanoTime().
+         */
+        private long roundStarted;
+
+        /**
+         * The amount of rounds that have started.
+         */
+        private int rounds;
+
+        /**
+         * How long the slowest round took.
+         */
+        private long slowest;
+
+        /**
+         * Ends the last round.
+         * @param game The game that has ended
+         * @param score The final score
+         */
+        @Override
+        public void onGameEnded(Game game, HashMap<Player, Integer> score) {
+            this.endRound(System.nanoTime());
+        }
+
+        /**
+         * Ends the previous round and starts the next one.
+         * @param game The game that raised the event
+         * @param current The no. of the round currently starting
+         * @param total The total amount of rounds to play.
+         */
+        @Override
+        public void onRoundStarted(Game game, int current, int total) {
+            final long now = System.nanoTime();
+            this.endRound(now);
+            this.roundStarted = now;
+            this.rounds++;
+        }
+
+        /**
+         * Does nothing, a round lasts until the next one starts.
+         * @param game The game that raised the event
+         * @param current The no. of the round that ended
+         * @param total The total amount of rounds to play.
+         */
+        @Override
+        public void onRoundEnded(Game game, int current, int total) {
+        }
+
+        /**
+         * Ends the current round, if there is one.
+         * @param now The current time, by System.nanoTime()
+         */
+        private void endRound(long now) {
+            if(this.rounds > 0) {
+                this.slowest = Math.max(this.slowest, now - this.roundStarted);
+            }
+        }
+    }
+
+    /**
+     * Initializes a new instance of the BatchRunner class.
+     * @param configuration The configuration the players and games are
+     * created from
+     * @param mode The mode of the games to play
+     * @throws IllegalArgumentException if any parameter is null
+     */
+    public BatchRunner(Configuration configuration, GameMode mode) {
+        if(configuration == null) {
+            throw new IllegalArgumentException("Parameter 'configuration' must not be null");
+        }
+
+        if(mode == null) {
+            throw new IllegalArgumentException("Parameter 'mode' must not be null");
+        }
+
+        this.configuration = configuration;
+        this.mode = mode;
+    }
+
+    /**
+     * Sets the seed all game seeds are derived from. Defaults to 0.
+     * @param seed The seed
+     * @return This BatchRunner
+     */
+    public BatchRunner setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the amount of games to play at the same time. Defaults to 1.
+     * @param parallelism The amount of games, at least 1
+     * @return This BatchRunner
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public BatchRunner setParallelism(int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parameter 'parallelism' must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Plays the games and writes their results. Does not close the writer.
+     * @param games The amount of games to play
+     * @param out Where to write the results to
+     * @throws IOException If writing failed
+     * @throws InterruptedException If the thread was interrupted
+     * @throws IllegalStateException if a game did not finish
+     */
+    public void run(int games, ResultWriter out) throws IOException, InterruptedException {
+        final List<String> players = new ArrayList<String>();
+        for(final PlayerConfiguration player : this.configuration.getPlayers()) {
+            players.add(player.getName());
+        }
+        out.begin(this.mode, this.seed, players);
+
+        final RandomService seeds = new RandomService(this.seed);
+        final ExecutorService workers = Executors.newFixedThreadPool(this.parallelism, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // A few games ahead of the writer keep all workers busy
+        final ArrayDeque<Future<GameResult>> pending = new ArrayDeque<Future<GameResult>>();
+        final long start = System.nanoTime();
+        try {
+            for(int i=0; i<games; i++) {
+                final int game = i;
+                final long gameSeed = seeds.next().getSeed();
+                pending.add(workers.submit(new Callable<GameResult>() {
+                    @Override
+                    public GameResult call() throws Exception {
+                        return play(game, gameSeed);
+                    }
+                }));
+
+                if(pending.size() >= 2 * this.parallelism) {
+                    out.write(result(pending.poll()));
+                }
+            }
+
+            while(!pending.isEmpty()) {
+                out.write(result(pending.poll()));
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        log.info(games + " games of " + this.mode + " played in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Plays a single game on a simulated board of its own, in virtual time, on
+     * the calling thread.
+     * @param game The number of the game in the batch
+     * @param gameSeed The seed of the game
+     * @return The result of the game
+     * @throws InterruptedException If the thread was interrupted
+     * @throws IllegalStateException if the game did not finish
+     */
+    public GameResult play(int game, long gameSeed) throws InterruptedException {
+        final VirtualClock clock = new VirtualClock();
+        final List<Player> players = new PlayerFactory(clock).create(this.configuration);
+        final GameController controller = new GameController(players, WORKER);
+        controller.getShockGovernor().setLimits(this.configuration.getShockLimits());
+
+        final Game played = this.configuration.createGame(this.mode);
+        played.setRandom(new GameRandom(gameSeed));
+        final RoundTimer timer = new RoundTimer();
+        played.addListener(timer);
+
+        final long start = System.nanoTime();
+        final HashMap<Player, Integer> score;
+        try {
+            score = controller.play(played).get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Game " + game + " (seed " + gameSeed + ") did not finish: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        final long wallTime = System.nanoTime() - start;
+        final long virtualTime = clock.nanoTime();
+        clock.advance(SETTLE_TIME, TimeUnit.SECONDS);
+
+        final int[] scores = new int[players.size()];
+        int max = Integer.MIN_VALUE;
+        for(int slot=0; slot<scores.length; slot++) {
+            final Integer points = score.get(players.get(slot));
+            scores[slot] = points == null ? 0 : points;
+            max = Math.max(max, scores[slot]);
+        }
+
+        long winners = 0;
+        for(int slot=0; slot<scores.length; slot++) {
+            if(scores[slot] == max) {
+                winners |= players.get(slot).getMask();
+            }
+        }
+
+        final SimulatedExpander expander = (SimulatedExpander) players.get(0).getBoard().getExpander();
+        final ShockGovernor governor = controller.getShockGovernor();
+        return new GameResult(game, gameSeed, scores, winners, timer.rounds, virtualTime, wallTime, timer.slowest,
+                expander.getWrites(), expander.getTransitions(), governor.getCount(ShockGovernor.Verdict.GRANTED), governor.getDenied());
+    }
+
+    /**
+     * Waits for the result of a game.
+     * @param future The future result
+     * @return The result
+     * @throws InterruptedException If the thread was interrupted
+     * @throws IllegalStateException if the game did not finish
+     */
+    private static GameResult result(Future<GameResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+}
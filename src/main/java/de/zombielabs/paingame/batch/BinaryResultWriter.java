@@ -0,0 +1,105 @@
+package de.zombielabs.paingame.batch;
+
+import de.zombielabs.paingame.games.GameMode;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes the results of a batch in a compact binary format, as written by
+ * DataOutputStream, i.e. big endian.
+ *
+ * The header is the int MAGIC, the mode's name (UTF), the seed (long), the
+ * amount of players (int) and their names (UTF each). Every game is a record
+ * of fixed size, see recordSize(): game (int), seed (long), rounds (int),
+ * virtual time, wall time and slowest round in nanoseconds (long each),
+ * writes, transitions, granted and denied shocks (long each), the winners'
+ * bitmask (long) and the scores by slot (int each).
+ * @author steps
+ */
+public class BinaryResultWriter implements ResultWriter {
+
+    /**
+     * Marks the start of the results, "PGR1".
+     */
+    public static final int MAGIC = 0x50475231;
+
+    /**
+     * Where to write to.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Initializes a new instance of the BinaryResultWriter class.
+     * @param out Where to write to. Is closed along with the writer.
+     * @throws IllegalArgumentException if out is null
+     */
+    public BinaryResultWriter(OutputStream out) {
+        if(out == null) {
+            throw new IllegalArgumentException("Parameter 'out' must not be null");
+        }
+
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    /**
+     * Gets the size of a single record.
+     * @param players The amount of players
+     * @return The size, in bytes
+     */
+    public static int recordSize(int players) {
+        return 4 + 8 + 4 + 3 * 8 + 4 * 8 + 8 + 4 * players;
+    }
+
+    /**
+     * Writes the header.
+     * @param mode The mode of all games
+     * @param seed The seed all game seeds have been derived from
+     * @param players The names of the players, by slot
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void begin(GameMode mode, long seed, List<String> players) throws IOException {
+        this.out.writeInt(MAGIC);
+        this.out.writeUTF(mode.name());
+        this.out.writeLong(seed);
+        this.out.writeInt(players.size());
+        for(final String player : players) {
+            this.out.writeUTF(player);
+        }
+    }
+
+    /**
+     * Writes the record of a game.
+     * @param result The result of the game
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void write(GameResult result) throws IOException {
+        this.out.writeInt(result.getGame());
+        this.out.writeLong(result.getSeed());
+        this.out.writeInt(result.getRounds());
+        this.out.writeLong(result.getVirtualTime());
+        this.out.writeLong(result.getWallTime());
+        this.out.writeLong(result.getSlowestRound());
+        this.out.writeLong(result.getWrites());
+        this.out.writeLong(result.getTransitions());
+        this.out.writeLong(result.getGranted());
+        this.out.writeLong(result.getDenied());
+        this.out.writeLong(result.getWinners());
+        for(int slot=0; slot<result.getPlayers(); slot++) {
+            this.out.writeInt(result.getScore(slot));
+        }
+    }
+
+    /**
+     * Flushes and closes the output.
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -0,0 +1,125 @@
+package de.zombielabs.paingame.batch;
+
+import de.zombielabs.paingame.games.GameMode;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the results of a batch as CSV, one line per game after a header.
+ * The winners are the numbers of the winning players, separated by spaces,
+ * followed by one score column per player, named after the player.
+ * @author steps
+ */
+public class CsvResultWriter implements ResultWriter {
+
+    /**
+     * The columns before the scores.
+     */
+    private static final String COLUMNS = "game,seed,rounds,virtual_ms,wall_ns,slowest_round_ns,writes,transitions,granted,denied,winners";
+
+    /**
+     * Where to write to.
+     */
+    private final Writer out;
+
+    /**
+     * The line being built, reused for every game.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Initializes a new instance of the CsvResultWriter class.
+     * @param out Where to write to, as UTF-8. Is closed along with the writer.
+     * @throws IllegalArgumentException if out is null
+     */
+    public CsvResultWriter(OutputStream out) {
+        if(out == null) {
+            throw new IllegalArgumentException("Parameter 'out' must not be null");
+        }
+
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the header.
+     * @param mode The mode of all games
+     * @param seed The seed all game seeds have been derived from
+     * @param players The names of the players, by slot
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void begin(GameMode mode, long seed, List<String> players) throws IOException {
+        this.line.setLength(0);
+        this.line.append(COLUMNS);
+        for(final String player : players) {
+            this.line.append(',');
+            quote(this.line, player);
+        }
+        this.line.append('\n');
+        this.out.write(this.line.toString());
+    }
+
+    /**
+     * Writes the line of a game.
+     * @param result The result of the game
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void write(GameResult result) throws IOException {
+        final StringBuilder current = this.line;
+        current.setLength(0);
+        current.append(result.getGame()).append(',')
+                .append(result.getSeed()).append(',')
+                .append(result.getRounds()).append(',')
+                .append(result.getVirtualTime() / 1000000).append(',')
+                .append(result.getWallTime()).append(',')
+                .append(result.getSlowestRound()).append(',')
+                .append(result.getWrites()).append(',')
+                .append(result.getTransitions()).append(',')
+                .append(result.getGranted()).append(',')
+                .append(result.getDenied()).append(',');
+
+        long winners = result.getWinners();
+        while(winners != 0) {
+            current.append(Long.numberOfTrailingZeros(winners) + 1);
+            winners &= winners - 1;
+            if(winners != 0) {
+                current.append(' ');
+            }
+        }
+
+        for(int slot=0; slot<result.getPlayers(); slot++) {
+            current.append(',').append(result.getScore(slot));
+        }
+        current.append('\n');
+        this.out.write(current.toString());
+    }
+
+    /**
+     * Flushes and closes the output.
+     * @throws IOException If writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    /**
+     * Appends a value, quoted if it contains anything CSV cares about.
+     * @param line Where to append the value
+     * @param value The value
+     */
+    private static void quote(StringBuilder line, String value) {
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            line.append(value);
+            return;
+        }
+
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
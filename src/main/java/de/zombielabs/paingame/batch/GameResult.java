@@ -0,0 +1,207 @@
+package de.zombielabs.paingame.batch;
+
+/**
+ * The GameResult holds what happened in a single game played by the
+ * BatchRunner. Everything but the wall clock timings only depends on the
+ * configuration, the game mode and the seed.
+ * @author steps
+ */
+public final class GameResult {
+
+    /**
+     * The number of the game in the batch, from 0 on.
+     */
+    private final int game;
+
+    /**
+     * The seed the game was played with.
+     */
+    private final long seed;
+
+    /**
+     * The final score of every player, by slot.
+     */
+    private final int[] scores;
+
+    /**
+     * The bitmask of the winners.
+     */
+    private final long winners;
+
+    /**
+     * The amount of rounds that have been played.
+     */
+    private final int rounds;
+
+    /**
+     * How long the game took in virtual time, in nanoseconds.
+     */
+    private final long virtualTime;
+
+    /**
+     * How long the game took on the wall clock, in nanoseconds.
+     */
+    private final long wallTime;
+
+    /**
+     * How long the slowest round took on the wall clock, in nanoseconds.
+     */
+    private final long slowestRound;
+
+    /**
+     * The amount of writes to the board.
+     */
+    private final long writes;
+
+    /**
+     * The amount of single pins that changed their state.
+     */
+    private final long transitions;
+
+    /**
+     * The amount of shocks the ShockGovernor granted.
+     */
+    private final long granted;
+
+    /**
+     * The amount of shocks the ShockGovernor denied.
+     */
+    private final long denied;
+
+    /**
+     * Initializes a new instance of the GameResult class.
+     * @param game The number of the game in the batch
+     * @param seed The seed the game was played with
+     * @param scores The final score of every player, by slot
+     * @param winners The bitmask of the winners
+     * @param rounds The amount of rounds that have been played
+     * @param virtualTime How long the game took in virtual time, in nanoseconds
+     * @param wallTime How long the game took on the wall clock, in nanoseconds
+     * @param slowestRound How long the slowest round took on the wall clock,
+     * in nanoseconds
+     * @param writes The amount of writes to the board
+     * @param transitions The amount of single pins that changed their state
+     * @param granted The amount of shocks the ShockGovernor granted
+     * @param denied The amount of shocks the ShockGovernor denied
+     */
+    GameResult(int game, long seed, int[] scores, long winners, int rounds, long virtualTime, long wallTime,
+            long slowestRound, long writes, long transitions, long granted, long denied) {
+        this.game = game;
+        this.seed = seed;
+        this.scores = scores.clone();
+        this.winners = winners;
+        this.rounds = rounds;
+        this.virtualTime = virtualTime;
+        this.wallTime = wallTime;
+        this.slowestRound = slowestRound;
+        this.writes = writes;
+        this.transitions = transitions;
+        this.granted = granted;
+        this.denied = denied;
+    }
+
+    /**
+     * Gets the number of the game in the batch.
+     * @return The number, from 0 on
+     */
+    public int getGame() {
+        return game;
+    }
+
+    /**
+     * Gets the seed the game was played with.
+     * @return The seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the amount of players.
+     * @return The amount of players
+     */
+    public int getPlayers() {
+        return scores.length;
+    }
+
+    /**
+     * Gets the final score of a player.
+     * @param slot The slot of the player
+     * @return The score
+     */
+    public int getScore(int slot) {
+        return scores[slot];
+    }
+
+    /**
+     * Gets the winners, i.e. everybody with the highest score.
+     * @return The bitmask of the winners, bit n is the player in slot n
+     */
+    public long getWinners() {
+        return winners;
+    }
+
+    /**
+     * Gets the amount of rounds that have been played.
+     * @return The amount of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Gets how long the game took in virtual time.
+     * @return The time, in nanoseconds
+     */
+    public long getVirtualTime() {
+        return virtualTime;
+    }
+
+    /**
+     * Gets how long the game took on the wall clock, from setup to teardown.
+     * @return The time, in nanoseconds
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Gets how long the slowest round took on the wall clock.
+     * @return The time, in nanoseconds
+     */
+    public long getSlowestRound() {
+        return slowestRound;
+    }
+
+    /**
+     * Gets the amount of writes to the board.
+     * @return The amount of writes
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Gets the amount of single pins that changed their state.
+     * @return The amount of transitions
+     */
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Gets the amount of shocks the ShockGovernor granted.
+     * @return The amount of shocks
+     */
+    public long getGranted() {
+        return granted;
+    }
+
+    /**
+     * Gets the amount of shocks the ShockGovernor denied.
+     * @return The amount of shocks
+     */
+    public long getDenied() {
+        return denied;
+    }
+}
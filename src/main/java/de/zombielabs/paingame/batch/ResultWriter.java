@@ -0,0 +1,29 @@
+package de.zombielabs.paingame.batch;
+
+import de.zombielabs.paingame.games.GameMode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A ResultWriter streams the results of a batch somewhere, one game at a time.
+ * @author steps
+ */
+public interface ResultWriter extends Closeable {
+
+    /**
+     * Is called once before the first result.
+     * @param mode The mode of all games
+     * @param seed The seed all game seeds have been derived from
+     * @param players The names of the players, by slot
+     * @throws IOException If writing failed
+     */
+    void begin(GameMode mode, long seed, List<String> players) throws IOException;
+
+    /**
+     * Is called for every game, in the order of the games.
+     * @param result The result of the game
+     * @throws IOException If writing failed
+     */
+    void write(GameResult result) throws IOException;
+}
@@ -0,0 +1,153 @@
+package de.zombielabs.paingame.config;
+
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameMode;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.safety.ShockLimits;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The Configuration class is a parsed and validated snapshot of the Paingame's
+ * configuration: the players, their pins and the parameters of all game modes.
+ *
+ * Instances are immutable. A new configuration is always a new instance, so it
+ * can be swapped in atomically while a game is running.
+ * @author steps
+ */
+public final class Configuration {
+
+    /**
+     * The players, in order.
+     */
+    private final List<PlayerConfiguration> players;
+
+    /**
+     * The I2C addresses of all expander chips, expander n is at index n - 1.
+     */
+    private final List<Integer> expanders;
+
+    /**
+     * The raw properties, used for game parameters.
+     */
+    private final Properties properties;
+
+    /**
+     * Initializes a new instance of the Configuration class. Use the
+     * ConfigurationLoader to get one.
+     * @param players The players, in order
+     * @param expanders The I2C addresses of all expander chips, in order
+     * @param properties The raw properties, will be copied
+     */
+    Configuration(List<PlayerConfiguration> players, List<Integer> expanders, Properties properties) {
+        this.players = Collections.unmodifiableList(new ArrayList<PlayerConfiguration>(players));
+        this.expanders = Collections.unmodifiableList(new ArrayList<Integer>(expanders));
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+    }
+
+    /**
+     * Gets the configured players.
+     * @return An unmodifiable list of all players, in order
+     */
+    public List<PlayerConfiguration> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Gets the I2C addresses of all configured expander chips.
+     * @return An unmodifiable list of addresses, expander n is at index n - 1
+     */
+    public List<Integer> getExpanders() {
+        return expanders;
+    }
+
+    /**
+     * Checks whether another configuration has the same players on the same
+     * pins and the same expander chips, i.e. whether the players can be kept
+     * when switching to it.
+     * @param other The configuration to compare with, may be null
+     * @return true if the players and expanders are the same
+     */
+    public boolean hasSamePlayers(Configuration other) {
+        return other != null && this.players.equals(other.players) && this.expanders.equals(other.expanders);
+    }
+
+    /**
+     * Gets an integer parameter.
+     * @param key The name of the parameter
+     * @param defaultValue The value to return if the parameter is not set
+     * @return The parameter's value
+     */
+    public int getInt(String key, int defaultValue) {
+        final String value = this.properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Gets a long parameter.
+     * @param key The name of the parameter
+     * @param defaultValue The value to return if the parameter is not set
+     * @return The parameter's value
+     */
+    public long getLong(String key, long defaultValue) {
+        final String value = this.properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Gets the limits of how much a single player may be shocked.
+     * @return The configured ShockLimits
+     * @throws IllegalArgumentException if the limits are out of range
+     */
+    public ShockLimits getShockLimits() {
+        final ShockLimits defaults = ShockLimits.DEFAULT;
+        return new ShockLimits(getInt("shock.maxShocks", defaults.getMaxShocks()),
+                getLong("shock.window", defaults.getWindow()),
+                getLong("shock.maxOnTime", defaults.getMaxOnTime()),
+                getLong("shock.minGap", defaults.getMinGap()));
+    }
+    
+    /**
+     * Checks whether another object is the same configuration.
+     * @param obj The object to compare with
+     * @return true if obj is a Configuration with the same players and
+     * parameters
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof Configuration)) {
+            return false;
+        }
+
+        final Configuration other = (Configuration) obj;
+        return this.hasSamePlayers(other) && this.properties.equals(other.properties);
+    }
+
+    /**
+     * Gets a hash code for this configuration.
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return this.players.hashCode() * 31 + this.properties.hashCode();
+    }
+
+    /**
+     * Creates a new Game of the given mode, using the configured parameters.
+     * @param mode The mode of the game
+     * @return A new Game, ready to be set up
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    public Game createGame(GameMode mode) {
+        switch(mode) {
+            case SHOCKY: {
+                return new Shocky(getInt("shocky.rounds", 10), getLong("shocky.pause", 2000), getInt("shocky.probability", 10));
+            } default: {
+                throw new IllegalArgumentException("Unknown game mode: " + mode);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package de.zombielabs.paingame.config;
+
+import de.zombielabs.paingame.io.PlayerBoard;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The ConfigurationLoader reads and validates the Paingame's configuration.
+ *
+ * The configuration is a plain properties file, see the bundled
+ * paingame.properties for an example. Players are numbered from 1 on, the
+ * first missing player.n.name ends the list of players. The same goes for
+ * expander chips and expander.n.address.
+ * @author steps
+ */
+public final class ConfigurationLoader {
+
+    /**
+     * The path of the bundled default configuration.
+     */
+    public static final String DEFAULT_RESOURCE = "/de/zombielabs/paingame/config/paingame.properties";
+
+    /**
+     * The highest number of the Raspberry Pi's own pins that can be used.
+     */
+    public static final int MAX_PIN = 20;
+
+    /**
+     * The maximum amount of players.
+     */
+    public static final int MAX_PLAYERS = PlayerBoard.MAX_PLAYERS;
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private ConfigurationLoader() {
+    }
+
+    /**
+     * Loads the bundled default configuration, but does not parse it yet.
+     * @return The raw default configuration
+     * @throws IOException If the resource could not be read
+     */
+    public static Properties loadDefaults() throws IOException {
+        final InputStream in = ConfigurationLoader.class.getResourceAsStream(DEFAULT_RESOURCE);
+        if(in == null) {
+            throw new IOException("Default configuration " + DEFAULT_RESOURCE + " is missing");
+        }
+
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Loads a configuration file.
+     * @param file The file to load
+     * @return The parsed Configuration
+     * @throws IOException If the file could not be read
+     * @throws IllegalArgumentException If the file is not a valid configuration
+     */
+    public static Configuration load(File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return parse(read(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Parses and validates a configuration.
+     * @param properties The raw configuration
+     * @return The parsed Configuration
+     * @throws IllegalArgumentException If the properties are not a valid configuration
+     */
+    public static Configuration parse(Properties properties) {
+        final List<PlayerConfiguration> players = new ArrayList<PlayerConfiguration>();
+        final List<Integer> expanders = new ArrayList<Integer>();
+        final Set<PinAddress> usedPins = new HashSet<PinAddress>();
+
+        String address;
+        while((address = properties.getProperty("expander." + (expanders.size() + 1) + ".address")) != null) {
+            try {
+                expanders.add(Integer.decode(address.trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("expander." + (expanders.size() + 1) + ".address is not an I2C address: " + address, ex);
+            }
+        }
+
+        int index = 1;
+        String name;
+        while((name = properties.getProperty("player." + index + ".name")) != null) {
+            name = name.trim();
+            if(name.isEmpty()) {
+                throw new IllegalArgumentException("Name of player " + index + " must not be empty");
+            }
+
+            if(index > MAX_PLAYERS) {
+                throw new IllegalArgumentException("There must not be more than " + MAX_PLAYERS + " players");
+            }
+
+            final PlayerConfiguration player = new PlayerConfiguration(name,
+                    pin(properties, expanders, usedPins, "player." + index + ".shock"),
+                    pin(properties, expanders, usedPins, "player." + index + ".led"),
+                    pin(properties, expanders, usedPins, "player." + index + ".buzzer"),
+                    offset(properties, "player." + index + ".buzzerOffset"));
+            players.add(player);
+            index++;
+        }
+
+        if(players.isEmpty()) {
+            throw new IllegalArgumentException("At least one player must be configured");
+        }
+
+        final Configuration configuration = new Configuration(players, expanders, properties);
+
+        // Make sure the game parameters are sane now, not when the game starts
+        try {
+            if(configuration.getInt("shocky.rounds", 10) < 1) {
+                throw new IllegalArgumentException("shocky.rounds must be at least 1");
+            }
+
+            if(configuration.getLong("shocky.pause", 2000) < 0) {
+                throw new IllegalArgumentException("shocky.pause must not be negative");
+            }
+
+            if(configuration.getInt("shocky.probability", 10) < 1) {
+                throw new IllegalArgumentException("shocky.probability must be at least 1");
+            }
+            
+            configuration.getShockLimits();
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid game parameter: " + ex.getMessage(), ex);
+        }
+
+        return configuration;
+    }
+
+    /**
+     * Reads a pin address and makes sure it exists and is not used twice.
+     * @param properties The raw configuration
+     * @param expanders The I2C addresses of all expander chips
+     * @param usedPins All pins used so far
+     * @param key The name of the property
+     * @return The pin's address
+     */
+    private static PinAddress pin(Properties properties, List<Integer> expanders, Set<PinAddress> usedPins, String key) {
+        final String value = properties.getProperty(key);
+        if(value == null) {
+            throw new IllegalArgumentException(key + " is missing");
+        }
+
+        final PinAddress pin;
+        try {
+            pin = PinAddress.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(key + ": " + ex.getMessage(), ex);
+        }
+
+        if(pin.getExpander() == PinAddress.RASPI) {
+            if(pin.getPin() < 0 || pin.getPin() > MAX_PIN) {
+                throw new IllegalArgumentException(key + " must be between 0 and " + MAX_PIN + ", but is " + pin);
+            }
+        } else {
+            if(pin.getExpander() < 1 || pin.getExpander() > expanders.size()) {
+                throw new IllegalArgumentException(key + ": expander " + pin.getExpander() + " is not configured");
+            }
+
+            if(pin.getPin() < 0 || pin.getPin() >= PinAddress.EXPANDER_PINS) {
+                throw new IllegalArgumentException(key + ": expanders only have pins 0 to " + (PinAddress.EXPANDER_PINS - 1));
+            }
+        }
+
+        if(!usedPins.add(pin)) {
+            throw new IllegalArgumentException(key + ": pin " + pin + " is used more than once");
+        }
+
+        return pin;
+    }
+
+    /**
+     * Reads an optional buzzer offset.
+     * @param properties The raw configuration
+     * @param key The name of the property
+     * @return The offset in microseconds, 0 if not set
+     */
+    private static long offset(Properties properties, String key) {
+        final String value = properties.getProperty(key);
+        if(value == null) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(key + " is not a number of microseconds: " + value, ex);
+        }
+    }
+
+    /**
+     * Reads properties from a stream.
+     * @param in The stream to read
+     * @return The properties
+     * @throws IOException If the stream could not be read
+     */
+    private static Properties read(InputStream in) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(in);
+        return properties;
+    }
+}
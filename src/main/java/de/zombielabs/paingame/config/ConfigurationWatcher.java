@@ -0,0 +1,206 @@
+package de.zombielabs.paingame.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The ConfigurationWatcher keeps a configuration file under observation and
+ * reloads it whenever it changes.
+ *
+ * Editors tend to save a file in several steps, so the file is only reloaded
+ * once nothing has changed in its directory for a quiet period. A reload that
+ * yields the same configuration as before is ignored, so nothing is set up
+ * again just because the file has been touched.
+ *
+ * A reloaded configuration replaces the current one in a single atomic step,
+ * so readers either see the old or the new configuration, never a mix. An
+ * invalid file is logged and ignored, the last good configuration stays.
+ * @author steps
+ */
+public class ConfigurationWatcher implements Runnable {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(ConfigurationWatcher.class);
+
+    /**
+     * How long the file's directory has to be quiet before the file is
+     * reloaded, in milliseconds.
+     */
+    public static final long QUIET_PERIOD = 500;
+
+    /**
+     * The file to watch.
+     */
+    private final File file;
+
+    /**
+     * The current configuration.
+     */
+    private final AtomicReference<Configuration> current;
+
+    /**
+     * How long to wait for the directory to be quiet, in milliseconds.
+     */
+    private final long quietPeriod;
+
+    /**
+     * The WatchService used to get notified about changes.
+     */
+    private WatchService watchService;
+
+    /**
+     * Initializes a new instance of the ConfigurationWatcher class and loads
+     * the file for the first time.
+     * @param file The configuration file to watch
+     * @throws IOException If the file could not be read
+     * @throws IllegalArgumentException If the file is not a valid configuration
+     */
+    public ConfigurationWatcher(File file) throws IOException {
+        this(file, QUIET_PERIOD);
+    }
+
+    /**
+     * Initializes a new instance of the ConfigurationWatcher class and loads
+     * the file for the first time.
+     * @param file The configuration file to watch
+     * @param quietPeriod How long the file's directory has to be quiet before
+     * the file is reloaded, in milliseconds
+     * @throws IOException If the file could not be read
+     * @throws IllegalArgumentException If the file is not a valid configuration
+     */
+    ConfigurationWatcher(File file, long quietPeriod) throws IOException {
+        this.file = file.getAbsoluteFile();
+        this.quietPeriod = quietPeriod;
+        this.current = new AtomicReference<Configuration>(ConfigurationLoader.load(this.file));
+    }
+
+    /**
+     * Gets the current configuration.
+     * @return The latest valid Configuration
+     */
+    public Configuration getConfiguration() {
+        return this.current.get();
+    }
+
+    /**
+     * Starts watching the file in a background thread.
+     * @throws IOException If the file's directory could not be watched
+     */
+    public synchronized void start() throws IOException {
+        if(this.watchService != null) {
+            return;
+        }
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParentFile().toPath().register(this.watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        final Thread thread = new Thread(this, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    public synchronized void stop() {
+        if(this.watchService != null) {
+            try {
+                this.watchService.close();
+            } catch (IOException ex) {
+                log.warn("Unable to close watch service: " + ex.getMessage());
+            }
+            this.watchService = null;
+        }
+    }
+
+    /**
+     * Waits for changes and reloads the file.
+     */
+    @Override
+    public void run() {
+        final WatchService service;
+        synchronized(this) {
+            service = this.watchService;
+        }
+
+        final Path name = this.file.toPath().getFileName();
+        log.info("Watching " + this.file + " for changes");
+
+        try {
+            while(true) {
+                if(!this.concerns(service.take(), name)) {
+                    continue;
+                }
+
+                // Wait until the editor is done, every change starts the wait again
+                WatchKey key;
+                while((key = service.poll(this.quietPeriod, TimeUnit.MILLISECONDS)) != null) {
+                    this.concerns(key, name);
+                }
+
+                this.reload();
+            }
+        } catch (InterruptedException ex) {
+            log.warn("Configuration watcher interrupted");
+        } catch (ClosedWatchServiceException ex) {
+            log.info("Stopped watching " + this.file);
+        }
+    }
+
+    /**
+     * Takes all events of a key and makes it ready for the next ones.
+     * @param key The key that has been signalled
+     * @param name The name of the watched file
+     * @return true if any of the events concerns the watched file
+     */
+    private boolean concerns(WatchKey key, Path name) {
+        boolean changed = false;
+        for(final WatchEvent<?> event : key.pollEvents()) {
+            if(name.equals(event.context())) {
+                changed = true;
+            }
+        }
+
+        if(!key.reset()) {
+            log.error("Directory of " + this.file + " is gone, no more reloading");
+            this.stop();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Reloads the file and swaps in the new configuration if it is valid and
+     * differs from the current one.
+     */
+    public void reload() {
+        try {
+            final Configuration loaded = ConfigurationLoader.load(this.file);
+            if(loaded.equals(this.current.get())) {
+                log.debug(this.file + " has been touched, but the configuration is the same");
+                return;
+            }
+
+            this.current.set(loaded);
+            log.info("Configuration reloaded from " + this.file + ", will be used for the next game");
+        } catch (IOException ex) {
+            log.error("Unable to reload " + this.file + ", keeping the old configuration: " + ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            log.error("Invalid configuration in " + this.file + ", keeping the old one: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.zombielabs.paingame.config;
+
+/**
+ * The PinAddress class identifies a single pin: either one of the Raspberry
+ * Pi's own GPIOs or a pin of an I/O expander chip. Instances are immutable.
+ *
+ * In the configuration, a Pi pin is written as its WiringPi number (e.g. "12"),
+ * an expander pin as expander number and pin, separated by a colon (e.g. "1:A3"
+ * or "1:11" for the fourth pin of port B of the first expander).
+ * @author steps
+ */
+public final class PinAddress {
+
+    /**
+     * The expander number of the Raspberry Pi's own GPIOs.
+     */
+    public static final int RASPI = 0;
+
+    /**
+     * The amount of pins of a single expander chip.
+     */
+    public static final int EXPANDER_PINS = 16;
+
+    /**
+     * The amount of pins of each of an expander's ports, A and B.
+     */
+    public static final int PORT_PINS = EXPANDER_PINS / 2;
+
+    /**
+     * The expander the pin belongs to, RASPI for the Pi's own GPIOs.
+     */
+    private final int expander;
+
+    /**
+     * The number of the pin.
+     */
+    private final int pin;
+
+    /**
+     * Initializes a new instance of the PinAddress class.
+     * @param expander The expander the pin belongs to, RASPI for the Pi itself
+     * @param pin The number of the pin
+     */
+    public PinAddress(int expander, int pin) {
+        this.expander = expander;
+        this.pin = pin;
+    }
+
+    /**
+     * Parses a pin address.
+     * @param value The address, e.g. "12" or "1:A3"
+     * @return The PinAddress
+     * @throws IllegalArgumentException if value is not a pin address, or a
+     * port's pin is not between 0 and 7
+     */
+    public static PinAddress parse(String value) {
+        final String trimmed = value.trim();
+        final int colon = trimmed.indexOf(':');
+
+        try {
+            if(colon < 0) {
+                return new PinAddress(RASPI, Integer.parseInt(trimmed));
+            }
+
+            final int expander = Integer.parseInt(trimmed.substring(0, colon).trim());
+            final String pin = trimmed.substring(colon + 1).trim().toUpperCase();
+
+            if(pin.startsWith("A") || pin.startsWith("B")) {
+                final int port = pin.charAt(0) == 'A' ? 0 : PORT_PINS;
+                final int index = Integer.parseInt(pin.substring(1));
+                if(index < 0 || index >= PORT_PINS) {
+                    throw new IllegalArgumentException("Not a pin address: " + value + ", ports only have pins "
+                            + pin.charAt(0) + "0 to " + pin.charAt(0) + (PORT_PINS - 1));
+                }
+                return new PinAddress(expander, port + index);
+            }
+
+            return new PinAddress(expander, Integer.parseInt(pin));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a pin address: " + value, ex);
+        }
+    }
+
+    /**
+     * Gets the expander the pin belongs to.
+     * @return The number of the expander, RASPI for the Pi's own GPIOs
+     */
+    public int getExpander() {
+        return expander;
+    }
+
+    /**
+     * Gets the number of the pin.
+     * @return The WiringPi number or the expander's pin number
+     */
+    public int getPin() {
+        return pin;
+    }
+
+    /**
+     * Checks whether another object addresses the same pin.
+     * @param obj The object to compare with
+     * @return true if obj is a PinAddress of the same pin
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof PinAddress)) {
+            return false;
+        }
+
+        final PinAddress other = (PinAddress) obj;
+        return this.expander == other.expander && this.pin == other.pin;
+    }
+
+    /**
+     * Gets a hash code for this address.
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return this.expander * 31 + this.pin;
+    }
+
+    /**
+     * Gets a String that represents this address, in the configuration's format.
+     * @return The address, e.g. "12" or "1:3"
+     */
+    @Override
+    public String toString() {
+        return this.expander == RASPI ? String.valueOf(this.pin) : this.expander + ":" + this.pin;
+    }
+}
@@ -0,0 +1,126 @@
+package de.zombielabs.paingame.config;
+
+/**
+ * The PlayerConfiguration class describes a single player: the name and the
+ * pins that are wired to the player's shock device, LED and buzzer.
+ * Instances are immutable.
+ * @author steps
+ */
+public final class PlayerConfiguration {
+    /**
+     * The name of the player.
+     */
+    private final String name;
+
+    /**
+     * The address of the pin to toggle in order to shock the player.
+     */
+    private final PinAddress shockPin;
+
+    /**
+     * The address of the pin connected to the player's LED.
+     */
+    private final PinAddress ledPin;
+
+    /**
+     * The address of the pin connected to the player's buzzer.
+     */
+    private final PinAddress buzzerPin;
+
+    /**
+     * The latency of the player's buzzer, in microseconds.
+     */
+    private final long buzzerOffset;
+
+    /**
+     * Initializes a new instance of the PlayerConfiguration class.
+     * @param name The player's name
+     * @param shockPin The address of the shock pin
+     * @param ledPin The address of the LED pin
+     * @param buzzerPin The address of the buzzer pin
+     * @param buzzerOffset The latency of the buzzer, in microseconds
+     */
+    public PlayerConfiguration(String name, PinAddress shockPin, PinAddress ledPin, PinAddress buzzerPin, long buzzerOffset) {
+        this.name = name;
+        this.shockPin = shockPin;
+        this.ledPin = ledPin;
+        this.buzzerPin = buzzerPin;
+        this.buzzerOffset = buzzerOffset;
+    }
+
+    /**
+     * Gets the name of the player.
+     * @return The player's name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the address of the pin to toggle in order to shock the player.
+     * @return The shock pin's address
+     */
+    public PinAddress getShockPin() {
+        return shockPin;
+    }
+
+    /**
+     * Gets the address of the pin connected to the player's LED.
+     * @return The LED pin's address
+     */
+    public PinAddress getLEDPin() {
+        return ledPin;
+    }
+
+    /**
+     * Gets the address of the pin connected to the player's buzzer.
+     * @return The buzzer pin's address
+     */
+    public PinAddress getBuzzerPin() {
+        return buzzerPin;
+    }
+
+    /**
+     * Gets the latency of the player's buzzer, as measured by a calibration.
+     * @return The buzzer's latency, in microseconds
+     */
+    public long getBuzzerOffset() {
+        return buzzerOffset;
+    }
+
+    /**
+     * Checks whether another object describes the same player on the same pins.
+     * @param obj The object to compare with
+     * @return true if obj is a PlayerConfiguration with equal name, pins and
+     * buzzer offset
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if(!(obj instanceof PlayerConfiguration)) {
+            return false;
+        }
+
+        final PlayerConfiguration other = (PlayerConfiguration) obj;
+        return this.name.equals(other.name) && this.shockPin.equals(other.shockPin)
+                && this.ledPin.equals(other.ledPin) && this.buzzerPin.equals(other.buzzerPin)
+                && this.buzzerOffset == other.buzzerOffset;
+    }
+
+    /**
+     * Gets a hash code for this PlayerConfiguration.
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return (this.name.hashCode() * 31 + this.shockPin.hashCode()) * 31 + this.buzzerPin.hashCode();
+    }
+
+    /**
+     * Gets a String that represents this PlayerConfiguration.
+     * @return The name and pins of the player
+     */
+    @Override
+    public String toString() {
+        return name + " (shock " + shockPin + ", LED " + ledPin + ", buzzer " + buzzerPin + ")";
+    }
+}
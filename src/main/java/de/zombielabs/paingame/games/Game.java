@@ -4,8 +4,18 @@
  */
 package de.zombielabs.paingame.games;
 
-import de.zombielabs.paingame.Paingame;
 import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.input.BuzzDecision;
+import de.zombielabs.paingame.input.BuzzerArbiter;
+import de.zombielabs.paingame.input.BuzzerListener;
+import de.zombielabs.paingame.input.FirstBuzzListener;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.log.LogEvent;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.random.RandomService;
+import de.zombielabs.paingame.safety.ShockGovernor;
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,10 +26,20 @@ import org.apache.log4j.Logger;
  * The abstract Game class is the base class for all game types.
  * @author steps
  */
-public abstract class Game implements Runnable {
+public abstract class Game implements Runnable, BuzzerListener, FirstBuzzListener {
     
     private static final Logger log = LogManager.getLogger(Game.class);
     
+    /**
+     * The governor used by all Games that have not been given another one.
+     */
+    private static final ShockGovernor defaultGovernor = new ShockGovernor();
+    
+    /**
+     * Hands out the random numbers of all Games that have not been given any.
+     */
+    private static final RandomService defaultRandom = new RandomService();
+    
     /**
      * Each game has a name.
      */
@@ -35,6 +55,38 @@ public abstract class Game implements Runnable {
      */
     private List<GameListener> listeners = new ArrayList<GameListener>();
     
+    /**
+     * Is set once somebody asked this Game to stop. Games are expected to check
+     * this flag regularly (e.g. once per round) and end their loop early.
+     */
+    private volatile boolean cancelled = false;
+    
+    /**
+     * Has the last word on whether a player may actually be shocked.
+     */
+    private volatile ShockGovernor shockGovernor = defaultGovernor;
+    
+    /**
+     * Decides who pressed the buzzer first, null if the Game does not care.
+     */
+    private volatile BuzzerArbiter buzzerArbiter;
+    
+    /**
+     * Hands out the random numbers of every run, unless they were pinned.
+     */
+    private volatile RandomService randomService = defaultRandom;
+    
+    /**
+     * The random numbers somebody asked this Game to be played with, null to
+     * get new ones for every run.
+     */
+    private volatile GameRandom pinnedRandom;
+    
+    /**
+     * Where the current run of this Game gets its random numbers from.
+     */
+    private volatile GameRandom random;
+    
     /**
      * Adds a new GameListener to this Game.
      * @param listener The listener to add
@@ -46,14 +98,24 @@ public abstract class Game implements Runnable {
         
         this.listeners.add(listener);
     }
+    
+    /**
+     * Removes a GameListener from this Game.
+     * @param listener The listener to remove
+     */
+    public void removeListener(GameListener listener) {
+        if(this.listeners != null) {
+            this.listeners.remove(listener);
+        }
+    }
 
     /**
      * Raises the onGameEnded event on all listening instances.
      * @param score The final score after the game has ended.
      */
     protected void raiseOnGameEnded(HashMap<Player, Integer> score) {
-        for(GameListener listener : this.listeners) {
-            listener.onGameEnded(this, score);
+        for(int i=0; i<this.listeners.size(); i++) {
+            this.listeners.get(i).onGameEnded(this, score);
         }
     }
     
@@ -63,8 +125,9 @@ public abstract class Game implements Runnable {
      * @param total The total amount of rounds that will be played
      */
     protected void raiseOnRoundStarted(int current, int total) {
-        for(final GameListener listener : this.listeners) {
-            listener.onRoundStarted(this, current, total);
+        // Indexed, an iterator would be garbage in every round
+        for(int i=0; i<this.listeners.size(); i++) {
+            this.listeners.get(i).onRoundStarted(this, current, total);
         }
     }
     
@@ -74,8 +137,8 @@ public abstract class Game implements Runnable {
      * @param total The total amount of rounds that will be played.
      */
     protected void raiseOnRoundEnded(int current, int total) {
-        for(final GameListener listener : this.listeners) {
-            listener.onRoundEnded(this, current, total);
+        for(int i=0; i<this.listeners.size(); i++) {
+            this.listeners.get(i).onRoundEnded(this, current, total);
         }
     }
     
@@ -112,11 +175,67 @@ public abstract class Game implements Runnable {
         this.players = players;
     }
     
+    /**
+     * Gets the ShockGovernor that limits how much players may be shocked.
+     * @return The ShockGovernor used by this Game
+     */
+    public ShockGovernor getShockGovernor() {
+        return shockGovernor;
+    }
+    
+    /**
+     * Sets the ShockGovernor that limits how much players may be shocked.
+     * @param shockGovernor The ShockGovernor to use
+     * @throws IllegalArgumentException if shockGovernor is null
+     */
+    public void setShockGovernor(ShockGovernor shockGovernor) {
+        if(shockGovernor == null) {
+            throw new IllegalArgumentException("Parameter 'shockGovernor' must not be null");
+        }
+        
+        this.shockGovernor = shockGovernor;
+    }
+    
+    /**
+     * Gets where the current run of this Game gets its random numbers from.
+     * Games must not use any other source of randomness, so they can be played
+     * again.
+     * @return The GameRandom, null until the Game has been prepared or given one
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+    
+    /**
+     * Pins the random numbers this Game is played with. To play a game again,
+     * give it a GameRandom with the recorded seed. Every run starts over from
+     * that seed, so running the Game twice plays the same game twice.
+     * @param random The GameRandom to use, null to get a new one for every run
+     */
+    public void setRandom(GameRandom random) {
+        this.pinnedRandom = random;
+        this.random = random;
+    }
+    
+    /**
+     * Sets the RandomService that hands out the random numbers of every run
+     * that has not been pinned with setRandom.
+     * @param randomService The RandomService to use
+     * @throws IllegalArgumentException if randomService is null
+     */
+    public void setRandomService(RandomService randomService) {
+        if(randomService == null) {
+            throw new IllegalArgumentException("Parameter 'randomService' must not be null");
+        }
+        
+        this.randomService = randomService;
+    }
+    
     /**
      * This is the first method that is called when a game is about to be played.
      * A Game has to setup all it needs to work during this method.
      * @param players The array of all Players that play the game. Will contain 
-     * 1 to 4 entries.
+     * 1 to 64 entries, all of them on the same PlayerBoard.
      * @return A Boolean value that indicates the success of the setup process.
      * A Game should return null if errors have been encountered. TRUE should be
      * returned if the Game has been properly set up, FALSE otherwise.
@@ -138,20 +257,120 @@ public abstract class Game implements Runnable {
      * This is the main method of every game. An implementing class must put all
      * code that makes up the game itself inside this method (it can, of course,
      * call others). The method will not only execute the game, but must also
-     * determine the winner (0 to 4 Players).
+     * determine the winner (0 to n Players).
      * @return A Hashmap that maps players to their rank. 
      */
     public abstract HashMap<Player, Integer> loop() throws InterruptedException;
     
+    /**
+     * Prepares this Game for a new run. Clears a previous cancellation request,
+     * gives the run fresh random numbers and hands over to setup. A pinned
+     * GameRandom starts over from its seed, otherwise the RandomService hands
+     * out a new one, so no run draws from streams a previous run used up.
+     * @param players The array of all Players that play the game.
+     * @return Whatever setup returned.
+     */
+    public final Boolean prepare(Player[] players) {
+        this.cancelled = false;
+        final GameRandom pinned = this.pinnedRandom;
+        this.random = pinned != null ? new GameRandom(pinned.getSeed()) : this.randomService.next();
+        return this.setup(players);
+    }
+    
+    /**
+     * Plays the game in the calling thread, i.e. runs the loop and raises the
+     * onGameEnded event afterwards. The Game must have been prepared before.
+     * @return The final score
+     * @throws InterruptedException If the game was interrupted or cancelled
+     * before it could finish.
+     */
+    public final HashMap<Player, Integer> play() throws InterruptedException {
+        final HashMap<Player, Integer> score = this.loop();
+        
+        if(this.cancelled) {
+            throw new InterruptedException(this.getGameName() + " has been cancelled");
+        }
+        
+        this.raiseOnGameEnded(score);
+        return score;
+    }
+    
+    /**
+     * Asks this Game to stop as soon as possible. This is cooperative, the 
+     * game loop has to check isCancelled() on its own.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+    
+    /**
+     * Checks whether somebody asked this Game to stop.
+     * @return true if the Game has been cancelled, false otherwise
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+    
+    /**
+     * Is called whenever a player presses the buzzer while this Game is played.
+     * The timestamp has already been corrected by the buzzer's latency, so
+     * timestamps of different players can be compared. Hands the press to the
+     * BuzzerArbiter, if there is one, games that need more override this.
+     * Is called on the thread that noticed the buzzer, not the game's thread.
+     * @param player The player that pressed the buzzer
+     * @param timestamp When the buzzer was pressed, in nanoseconds
+     */
+    @Override
+    public void onBuzz(Player player, long timestamp) {
+        final BuzzerArbiter arbiter = this.buzzerArbiter;
+        if(arbiter != null) {
+            arbiter.onBuzz(player, timestamp);
+        }
+    }
+    
+    /**
+     * Is called once the BuzzerArbiter has decided who pressed the buzzer
+     * first. Does nothing by default, games that use an arbiter override this.
+     * Is called on the thread that decided, usually the game's thread.
+     * @param decision The winner and ties
+     */
+    @Override
+    public void onFirstBuzz(BuzzDecision decision) {
+    }
+    
+    /**
+     * Gets the BuzzerArbiter of this Game.
+     * @return The arbiter, null if the Game does not use one
+     */
+    protected BuzzerArbiter getBuzzerArbiter() {
+        return this.buzzerArbiter;
+    }
+    
+    /**
+     * Sets the BuzzerArbiter all buzzer presses are handed to, usually during
+     * setup. The Game is notified about the arbiter's decisions through
+     * onFirstBuzz. The game loop opens the arbiter before giving the players
+     * their cue and waits for the decision.
+     * @param buzzerArbiter The arbiter to use, null to not use one
+     */
+    protected void setBuzzerArbiter(BuzzerArbiter buzzerArbiter) {
+        if(this.buzzerArbiter != null) {
+            this.buzzerArbiter.removeListener(this);
+        }
+        
+        if(buzzerArbiter != null) {
+            buzzerArbiter.addListener(this);
+        }
+        this.buzzerArbiter = buzzerArbiter;
+    }
+    
     /**
      * Starts the game asynchronously.
      */
     @Override
     public void run() {
         try {
-            final HashMap<Player, Integer> score = this.loop();
-            this.raiseOnGameEnded(score);
-            
+            this.play();
         } catch (InterruptedException ex) {
             log.error("Error while in game loop: " + ex.getMessage(), ex);
         }
@@ -159,17 +378,67 @@ public abstract class Game implements Runnable {
     
     /**
      * Simple helper method that shocks a player while switching on his/her LED.
+     * The ShockGovernor has the last word, the player will not be shocked if
+     * his/her shock budget is used up.
      * @param player The player to shock
      * @param duration The amount of time to shock the player
      * @param blocking If true, calls are blocking, should be false most of the time
+     * @return true if the player was shocked, false if the governor denied it
+     */
+    protected boolean shockPlayer(Player player, int duration, boolean blocking) {
+        if(this.shockGovernor.request(player, duration) != ShockGovernor.Verdict.GRANTED) {
+            return false;
+        }
+        
+        EventLog.INSTANCE.log(log, LogEvent.SHOCK, player.getName(), duration);
+        player.getBoard().pulse(player.getMask(), player.getMask(), duration, blocking);
+        return true;
+    }
+    
+    /**
+     * Shocks several players at once while switching on their LEDs. Every
+     * player is checked with the ShockGovernor, all players that may be
+     * shocked are then shocked with a single write to the board.
+     * @param mask The bitmask of the players to shock
+     * @param duration The amount of time to shock the players
+     * @param blocking If true, calls are blocking, should be false most of the time
+     * @return The bitmask of the players that were actually shocked
+     */
+    protected long shockPlayers(long mask, int duration, boolean blocking) {
+        long granted = 0;
+        for(final Player player : this.getPlayers()) {
+            if((mask & player.getMask()) != 0 && this.shockGovernor.request(player, duration) == ShockGovernor.Verdict.GRANTED) {
+                granted |= player.getMask();
+            }
+        }
+        
+        if(granted != 0) {
+            EventLog.INSTANCE.log(log, LogEvent.SHOCKS, null, Long.bitCount(granted), duration);
+            this.getPlayers()[0].getBoard().pulse(granted, granted, duration, blocking);
+        }
+        return granted;
+    }
+    
+    /**
+     * Gets the clock this Game goes by, i.e. the clock of the players' board.
+     * Games must wait with this clock, not with Thread.sleep(), so they can be
+     * simulated in virtual time.
+     * @return The Clock, the SystemClock if there are no players yet
+     */
+    protected Clock getClock() {
+        final Player[] current = this.getPlayers();
+        return current == null || current.length == 0 ? SystemClock.INSTANCE : current[0].getBoard().getClock();
+    }
+    
+    /**
+     * Gets the bitmask of all players playing this game.
+     * @return A bitmask with the slots of all players set
      */
-    protected void shockPlayer(Player player, int duration, boolean blocking) {
-        log.info("Shocking '" + player.getName() + "' for " + duration + " milliseconds");
-        if(!Paingame.DEVELOPMENT) {
-            player.getLEDPin().pulse(duration, blocking);
-            player.getShockPin().pulse(duration, blocking);
-        } else {
-            log.warn("In development mode, no actual pin triggering");
+    protected long getPlayerMask() {
+        long mask = 0;
+        for(final Player player : this.getPlayers()) {
+            mask |= player.getMask();
         }
+        return mask;
     }
 }
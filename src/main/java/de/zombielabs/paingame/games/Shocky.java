@@ -1,9 +1,10 @@
 package de.zombielabs.paingame.games;
 
 import de.zombielabs.paingame.Player;
-import java.security.SecureRandom;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.log.LogEvent;
+import de.zombielabs.paingame.random.GameRandom;
 import java.util.HashMap;
-import java.util.Map.Entry;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
@@ -71,7 +72,7 @@ public class Shocky extends Game {
         this.setPlayers(players);
         
         for(final Player player : players) {
-            log.info(player.getName() + " dares to play " + this.getGameName());
+            EventLog.INSTANCE.log(log, LogEvent.PLAYER_JOINED, player.getName(), this.getGameName(), 0, 0);
         }
         
         return Boolean.TRUE;
@@ -79,16 +80,16 @@ public class Shocky extends Game {
 
     /**
      * Tears down shocky. There's actually not a lot going on here, simply all
-     * the pins of the players will be reset.
+     * the shock pins of the players will be reset. LEDs switch themselves off
+     * after their pulse, they might be showing the winners right now.
      * @return Boolean.TRUE, always
      */
     @Override
     public Boolean teardown() {
         
-        // Clear up all LEDs and pins
-        for(Player player : this.getPlayers()) {
-            player.getLEDPin().low();
-            player.getShockPin().low();
+        // Clear up all shock pins
+        if(this.getPlayers() != null && this.getPlayers().length > 0) {
+            this.getPlayers()[0].getBoard().clear(this.getPlayerMask(), 0);
         }
         return Boolean.TRUE;
     }
@@ -104,75 +105,79 @@ public class Shocky extends Game {
      * The game now loops n times, n being the amount of rounds to play. In each
      * round, a random number is generated for each player. Should that number
      * be the same as the magic number, the player will get shocked and rewarded
-     * with one score point.
+     * with one score point. Shocks the ShockGovernor denies do not score.
      * 
      * After all rounds have finished, the game will check whether or not anybody
      * got shocked at all. If not, everybody will get shocked, one after the other.
+     * This includes the case of all shocks having been denied.
+     * 
+     * Should the game get cancelled, it will stop before the next round starts.
      * 
      * @return The score as a HashMap
      * @throws InterruptedException If the thread gets interrupted.
      */
     @Override
     public HashMap<Player, Integer> loop() throws InterruptedException {
-        HashMap<Player, Integer> score = new HashMap<Player, Integer>();
+        final Player[] players = this.getPlayers();
+        final int[] points = new int[players.length];
         
-        for(int i=0; i<this.getPlayers().length; i++) {
-            score.put(this.getPlayers()[i], 0);
-        }
-        
-        SecureRandom rand = new SecureRandom();
+        final GameRandom rand = this.getRandom();
         final int shockingNumber = rand.nextInt(this.probability);
-        log.info("Magic number is " + shockingNumber);
+        EventLog.INSTANCE.log(log, LogEvent.MAGIC_NUMBER, null, shockingNumber, rand.getSeed());
         
         boolean anybodyWasShocked = false;
         
         int round = 0;
         
-        while(round++ < this.totalRounds) {
+        while(round++ < this.totalRounds && !this.isCancelled()) {
             
             this.raiseOnRoundStarted(round, this.totalRounds);
             
-            HashMap<Player, Boolean> shockThem = new HashMap<Player, Boolean>();
-            
-            for(int i=0; i<this.getPlayers().length; i++) {
-                shockThem.put(this.getPlayers()[i], Boolean.FALSE);
-            }
+            // Everybody to shock this round, bit n is the player in slot n
+            long shockThem = 0;
             
             // Get a random number for each player
-            for(int i=0; i<this.getPlayers().length; i++) {
+            for(int i=0; i<players.length; i++) {
                 // Chance to get shocked is 1 in 10
-                final int random = rand.nextInt(this.probability);
+                final int random = rand.nextInt(players[i], this.probability);
                 if(random == shockingNumber) {
-                    log.info("Player '" + this.getPlayers()[i] + "' hit the magic number");
-                    shockThem.put(this.getPlayers()[i], Boolean.TRUE);
-                    score.put(this.getPlayers()[i], score.get(this.getPlayers()[i]) + 1);
-                    anybodyWasShocked = true;
+                    EventLog.INSTANCE.log(log, LogEvent.MAGIC_NUMBER_HIT, players[i]);
+                    shockThem |= players[i].getMask();
                 } else {
-                    log.debug("Player '" + this.getPlayers()[i] + "' was lucky this time (" + random + ")");
+                    EventLog.INSTANCE.log(log, LogEvent.LUCKY, players[i], random);
                 }
             }
             
-            // Now shock everybody that hit the magic number
-            for(Entry<Player, Boolean> entry : shockThem.entrySet()) {
-                if(entry.getValue().equals(Boolean.TRUE)) {
-                    log.info("Shocking '" + entry.getKey().getName() + "' for 300 ms...");
-                    this.shockPlayer(entry.getKey(), 300, false);
+            // Now shock everybody that hit the magic number, all at once. Only
+            // shocks the governor has granted count.
+            if(shockThem != 0) {
+                final long shocked = this.shockPlayers(shockThem, 300, false);
+                for(int i=0; i<players.length; i++) {
+                    if((shocked & players[i].getMask()) != 0) {
+                        points[i]++;
+                    }
                 }
+                anybodyWasShocked |= shocked != 0;
             }
             
-            log.info("Next round will start in " + (this.pauseBetweenRounds/1000) + " seconds...");
+            EventLog.INSTANCE.log(log, LogEvent.NEXT_ROUND, null, this.pauseBetweenRounds/1000);
             this.raiseOnRoundEnded(round, this.totalRounds);
-            Thread.sleep(this.pauseBetweenRounds);
+            this.getClock().sleep(this.pauseBetweenRounds);
         }
         
-        // If nobody was shocked, just be evil and shock everybody
-        if(!anybodyWasShocked) {
-            for(final Player player : this.getPlayers()) {
+        // If nobody was shocked, or all shocks were denied, just be evil and shock everybody
+        if(!anybodyWasShocked && !this.isCancelled()) {
+            for(final Player player : players) {
                 // We use blocking calls here to avoid the game from ending too soon
                 this.shockPlayer(player, 300, true);
             }
         }
         
+        HashMap<Player, Integer> score = new HashMap<Player, Integer>();
+        for(int i=0; i<players.length; i++) {
+            score.put(players[i], points[i]);
+        }
+        
         return score;
     }
 }
\ No newline at end of file
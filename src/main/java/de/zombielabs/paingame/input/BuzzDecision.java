@@ -0,0 +1,81 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+
+/**
+ * The BuzzDecision is the outcome of a BuzzerArbiter: who pressed the buzzer
+ * first, when, and who pressed it so shortly after that it is a tie.
+ * Instances are immutable.
+ * @author steps
+ */
+public final class BuzzDecision {
+
+    /**
+     * The player that pressed the buzzer first.
+     */
+    private final Player winner;
+
+    /**
+     * When the winner pressed the buzzer, in nanoseconds.
+     */
+    private final long timestamp;
+
+    /**
+     * The bitmask of all other players that pressed within the tie window.
+     */
+    private final long ties;
+
+    /**
+     * Initializes a new instance of the BuzzDecision class.
+     * @param winner The player that pressed the buzzer first
+     * @param timestamp When the winner pressed the buzzer, in nanoseconds
+     * @param ties The bitmask of all other players within the tie window
+     */
+    BuzzDecision(Player winner, long timestamp, long ties) {
+        this.winner = winner;
+        this.timestamp = timestamp;
+        this.ties = ties;
+    }
+
+    /**
+     * Gets the player that pressed the buzzer first.
+     * @return The winner
+     */
+    public Player getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the time the winner pressed the buzzer, corrected by the buzzer's
+     * latency.
+     * @return The timestamp, in nanoseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets all other players that pressed within the tie window.
+     * @return The bitmask of the tied players, 0 if there is no tie
+     */
+    public long getTies() {
+        return ties;
+    }
+
+    /**
+     * Checks whether anybody else pressed within the tie window.
+     * @return true if this is a tie
+     */
+    public boolean isTie() {
+        return ties != 0;
+    }
+
+    /**
+     * Gets a String that represents this decision.
+     * @return The winner, and the amount of tied players, if any
+     */
+    @Override
+    public String toString() {
+        return isTie() ? winner + " (tied with " + Long.bitCount(ties) + " more)" : String.valueOf(winner);
+    }
+}
@@ -0,0 +1,322 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The BuzzerArbiter decides who pressed the buzzer first.
+ *
+ * Buzzer presses can arrive on several threads and not necessarily in the
+ * order they happened, so the arbiter goes by the (latency corrected)
+ * timestamps. The claim on the win is a single long: the time since the
+ * arbitration was opened, shifted left by six bits, with the player's slot in
+ * the lower six bits. A press only has to compare-and-set that long if it is
+ * smaller, so the earliest press always ends up holding the claim, no locks
+ * involved. Equal timestamps are decided by the lower slot.
+ *
+ * Everybody who pressed within the tie window after the winner is reported
+ * as a tie. The decision is made once the tie window has passed, see
+ * awaitDecision().
+ * @author steps
+ */
+public class BuzzerArbiter implements BuzzerListener {
+
+    /**
+     * The amount of bits needed for a slot.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * Masks the slot of a claim.
+     */
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+
+    /**
+     * The latest time, relative to the opening, that still fits into a claim.
+     */
+    private static final long MAX_RELATIVE = Long.MAX_VALUE >>> SLOT_BITS;
+
+    /**
+     * Nobody has claimed the win yet.
+     */
+    private static final long EMPTY = Long.MAX_VALUE;
+
+    /**
+     * The player has not pressed the buzzer yet.
+     */
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * The players taking part, by slot.
+     */
+    private final Player[] players = new Player[PlayerBoard.MAX_PLAYERS];
+
+
+    /**
+     * Presses within this amount of nanoseconds after the winner are ties.
+     */
+    private final long tieWindow;
+
+    /**
+     * The clock of the players' board.
+     */
+    private final Clock clock;
+
+    /**
+     * All listeners that get notified about decisions.
+     */
+    private final List<FirstBuzzListener> listeners = new CopyOnWriteArrayList<FirstBuzzListener>();
+
+    /**
+     * The current claim on the win.
+     */
+    private final AtomicLong claim = new AtomicLong(EMPTY);
+
+    /**
+     * The first press of every slot since the arbitration was opened.
+     */
+    private final AtomicLongArray presses = new AtomicLongArray(PlayerBoard.MAX_PLAYERS);
+
+    /**
+     * The bitmask of all players that pressed before the arbitration was opened.
+     */
+    private final AtomicLong falseStarts = new AtomicLong();
+
+    /**
+     * Makes sure every arbitration is only decided once.
+     */
+    private final AtomicBoolean decided = new AtomicBoolean();
+
+    /**
+     * Whether presses are taken into account at all.
+     */
+    private volatile boolean armed = false;
+
+    /**
+     * When the current arbitration was opened, in nanoseconds.
+     */
+    private volatile long openedAt;
+
+    /**
+     * Is counted down by the first press of the current arbitration.
+     */
+    private volatile CountDownLatch firstPress = new CountDownLatch(1);
+
+    /**
+     * The decision of the current arbitration, null if not decided yet.
+     */
+    private volatile BuzzDecision decision;
+
+    /**
+     * The highest latency correction of all players when the current
+     * arbitration was opened, in nanoseconds.
+     */
+    private volatile long maxOffset;
+
+    /**
+     * Initializes a new instance of the BuzzerArbiter class.
+     * @param players The players taking part
+     * @param tieWindow Presses within this time after the winner are ties
+     * @param unit The unit of tieWindow
+     */
+    public BuzzerArbiter(Player[] players, long tieWindow, TimeUnit unit) {
+        for(final Player player : players) {
+            this.players[player.getSlot()] = player;
+        }
+
+        this.tieWindow = unit.toNanos(tieWindow);
+        this.clock = players.length == 0 ? SystemClock.INSTANCE : players[0].getBoard().getClock();
+    }
+
+    /**
+     * Adds a listener that gets notified about decisions.
+     * @param listener The listener to add
+     */
+    public void addListener(FirstBuzzListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener The listener to remove
+     */
+    public void removeListener(FirstBuzzListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Opens a new arbitration now. See open(long).
+     */
+    public void open() {
+        this.open(this.clock.nanoTime());
+    }
+
+    /**
+     * Opens a new arbitration, forgetting all about the previous one. Presses
+     * before the given time are false starts. Must be called before the
+     * players are given their cue. Takes the players' latency corrections as
+     * they are now, so recalibrations count from the next arbitration on.
+     * @param since When the arbitration opens, in nanoseconds
+     */
+    public void open(long since) {
+        this.armed = false;
+        this.openedAt = since;
+        this.decision = null;
+        this.maxOffset = this.maxOffset();
+        this.firstPress = new CountDownLatch(1);
+        this.falseStarts.set(0);
+        for(int slot=0; slot<PlayerBoard.MAX_PLAYERS; slot++) {
+            this.presses.set(slot, NONE);
+        }
+        this.claim.set(EMPTY);
+        this.decided.set(false);
+        this.armed = true;
+    }
+
+    /**
+     * Stops taking presses into account until the next arbitration is opened.
+     */
+    public void close() {
+        this.armed = false;
+    }
+
+    /**
+     * Takes a press into account and claims the win if it is the earliest so
+     * far. Can be called from any thread.
+     * @param player The player that pressed the buzzer
+     * @param timestamp When the buzzer was pressed, in nanoseconds, corrected
+     */
+    @Override
+    public void onBuzz(Player player, long timestamp) {
+        final int slot = player.getSlot();
+        if(!this.armed || this.players[slot] != player) {
+            return;
+        }
+
+        final long since = timestamp - this.openedAt;
+        if(since < 0) {
+            long current;
+            do {
+                current = this.falseStarts.get();
+            } while(!this.falseStarts.compareAndSet(current, current | player.getMask()));
+            return;
+        }
+
+        // Only the first press of each player counts
+        if(!this.presses.compareAndSet(slot, NONE, timestamp)) {
+            return;
+        }
+
+        final long candidate = (Math.min(since, MAX_RELATIVE) << SLOT_BITS) | slot;
+        long current = this.claim.get();
+        while(candidate < current) {
+            if(this.claim.compareAndSet(current, candidate)) {
+                if(current == EMPTY) {
+                    this.firstPress.countDown();
+                }
+                return;
+            }
+            current = this.claim.get();
+        }
+    }
+
+    /**
+     * Waits for the first press and the tie window after it, then decides and
+     * notifies all listeners. Presses are timestamped before they reach the
+     * arbiter and slow buzzers are corrected into the past, so the arbiter also
+     * waits for the highest correction before deciding.
+     * @param timeout How long to wait for the first press
+     * @param unit The unit of timeout
+     * @return The decision, null if nobody pressed in time
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    public BuzzDecision awaitDecision(long timeout, TimeUnit unit) throws InterruptedException {
+        if(!this.clock.await(this.firstPress, timeout, unit)) {
+            return null;
+        }
+
+        final long settled = this.openedAt + (this.claim.get() >>> SLOT_BITS) + this.tieWindow + this.maxOffset;
+        final long remaining = settled - this.clock.nanoTime();
+        if(remaining > 0) {
+            // Rounded up, so the tie window has surely passed
+            this.clock.sleep(TimeUnit.NANOSECONDS.toMillis(remaining + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        }
+
+        return this.decideNow();
+    }
+
+    /**
+     * Decides now, without waiting for the tie window, and notifies all
+     * listeners. Once decided, later calls return the same decision.
+     * @return The decision, null if nobody has pressed yet
+     */
+    public BuzzDecision decideNow() {
+        if(this.claim.get() == EMPTY) {
+            return null;
+        }
+
+        if(this.decided.compareAndSet(false, true)) {
+            this.decision = this.peek();
+            for(final FirstBuzzListener listener : this.listeners) {
+                listener.onFirstBuzz(this.decision);
+            }
+        }
+
+        return this.decision;
+    }
+
+    /**
+     * Gets the decision as it stands right now, without deciding.
+     * @return The current leader and ties, null if nobody has pressed yet
+     */
+    public BuzzDecision peek() {
+        final long current = this.claim.get();
+        if(current == EMPTY) {
+            return null;
+        }
+
+        final int slot = (int) (current & SLOT_MASK);
+        final long timestamp = this.presses.get(slot);
+
+        long ties = 0;
+        for(int other=0; other<PlayerBoard.MAX_PLAYERS; other++) {
+            final long press = this.presses.get(other);
+            if(other != slot && press != NONE && press - timestamp <= this.tieWindow) {
+                ties |= 1L << other;
+            }
+        }
+
+        return new BuzzDecision(this.players[slot], timestamp, ties);
+    }
+
+    /**
+     * Gets the highest latency correction of all players.
+     * @return The highest correction, in nanoseconds
+     */
+    private long maxOffset() {
+        long offset = 0;
+        for(final Player player : this.players) {
+            if(player != null) {
+                offset = Math.max(offset, player.getBuzzerOffset());
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Gets all players that pressed before the arbitration was opened.
+     * @return The bitmask of all false starts
+     */
+    public long getFalseStarts() {
+        return this.falseStarts.get();
+    }
+}
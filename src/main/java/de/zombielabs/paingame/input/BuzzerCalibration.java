@@ -0,0 +1,253 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The BuzzerCalibration measures the latency of each player's buzzer.
+ *
+ * Here's how it works: after a random delay, all LEDs are switched on at once.
+ * That's the cue, everybody presses the buzzer as soon as possible. The time
+ * between the cue and the press is measured for every player. This is repeated
+ * a couple of times, the median of all measurements is the player's latency.
+ * The fastest buzzer is the reference, the other buzzers get the difference as
+ * their offset.
+ *
+ * The offsets are then checked in a verification pass with half as many cues,
+ * with the offsets in effect. The skew that is left in that pass is reported,
+ * as the presses used to find the offsets would flatter them.
+ *
+ * The best results are achieved by pressing all buzzers at once with a single
+ * hand or a board, so that only the wiring makes the difference.
+ * @author steps
+ */
+public class BuzzerCalibration implements BuzzerListener {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(BuzzerCalibration.class);
+
+    /**
+     * Marks a player that has not pressed the buzzer yet.
+     */
+    private static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * The shortest amount of time to wait before the cue, in milliseconds.
+     */
+    private static final int MIN_DELAY = 1000;
+
+    /**
+     * The longest amount of time to wait before the cue, in milliseconds.
+     */
+    private static final int MAX_DELAY = 3000;
+
+    /**
+     * The buzzer input to listen to.
+     */
+    private final BuzzerInput input;
+
+    /**
+     * The players to calibrate.
+     */
+    private final Player[] players;
+
+    /**
+     * Maps every player to his/her index in players.
+     */
+    private final Map<Player, Integer> indices = new IdentityHashMap<Player, Integer>();
+
+    /**
+     * The bitmask of all players.
+     */
+    private final long all;
+
+    /**
+     * When the current cue was given, in nanoseconds.
+     */
+    private volatile long cue = NONE;
+
+    /**
+     * When each player pressed the buzzer in the current trial, uncorrected.
+     */
+    private final AtomicLongArray presses;
+
+    /**
+     * Whether the current trial is part of the verification pass, i.e.
+     * presses are recorded as corrected by the pipeline.
+     */
+    private volatile boolean verifying = false;
+
+    /**
+     * Counts down as players press their buzzer during the current trial.
+     */
+    private volatile CountDownLatch pending = new CountDownLatch(0);
+
+    /**
+     * Initializes a new instance of the BuzzerCalibration class.
+     * @param input The buzzer input to listen to
+     * @param players The players to calibrate
+     */
+    public BuzzerCalibration(BuzzerInput input, Player[] players) {
+        this.input = input;
+        this.players = players;
+        this.presses = new AtomicLongArray(players.length);
+
+        long mask = 0;
+        for(int i=0; i<players.length; i++) {
+            this.indices.put(players[i], i);
+            mask |= players[i].getMask();
+        }
+        this.all = mask;
+    }
+
+    /**
+     * Runs the calibration. Must not be called while a game is played. The
+     * offsets are in effect during the verification pass only, see
+     * CalibrationReport.apply().
+     * @param trials How often to give the cue, the verification pass gives it
+     * half as often
+     * @param timeout How long to wait for the buzzers after each cue, in milliseconds
+     * @return The report
+     * @throws InterruptedException If the calibration was interrupted
+     */
+    public CalibrationReport run(int trials, long timeout) throws InterruptedException {
+        final long[][] latencies = new long[this.players.length][trials];
+        final int[] counts = new int[this.players.length];
+        final int checks = (trials + 1) / 2;
+        final long[][] corrected = new long[this.players.length][checks];
+        final int[] verified = new int[this.players.length];
+        final Random random = new Random();
+
+        final long[] previous = new long[this.players.length];
+        for(int i=0; i<this.players.length; i++) {
+            previous[i] = this.players[i].getBuzzerOffset();
+        }
+
+        final CalibrationReport report;
+        this.input.addListener(this);
+        try {
+            this.measure("cue", trials, timeout, random, latencies, counts);
+            report = new CalibrationReport(this.players, latencies, counts);
+
+            report.apply();
+            this.verifying = true;
+            this.measure("check", checks, timeout, random, corrected, verified);
+            report.verify(corrected, verified);
+        } finally {
+            this.verifying = false;
+            for(int i=0; i<this.players.length; i++) {
+                this.players[i].setBuzzerOffset(previous[i]);
+            }
+            this.input.removeListener(this);
+        }
+
+        return report;
+    }
+
+    /**
+     * Gives the cue a couple of times and measures the latency of every press.
+     * @param name What to call the trials in the log
+     * @param trials How often to give the cue
+     * @param timeout How long to wait for the buzzers after each cue, in milliseconds
+     * @param random Picks the delay before each cue
+     * @param latencies Where to put the latencies per player
+     * @param counts Where to count the latencies per player
+     * @throws InterruptedException If the calibration was interrupted
+     */
+    private void measure(String name, int trials, long timeout, Random random, long[][] latencies, int[] counts) throws InterruptedException {
+        for(int trial=1; trial<=trials; trial++) {
+            log.info("Calibration: " + name + " " + trial + " of " + trials + ", press your buzzers once the LEDs light up");
+            this.clock().sleep(MIN_DELAY + random.nextInt(MAX_DELAY - MIN_DELAY));
+
+            this.cue = NONE;
+            for(int i=0; i<this.players.length; i++) {
+                this.presses.set(i, NONE);
+            }
+            this.pending = new CountDownLatch(this.players.length);
+
+            this.cue();
+            this.clock().await(this.pending, timeout, TimeUnit.MILLISECONDS);
+            this.reset();
+
+            for(int i=0; i<this.players.length; i++) {
+                final long press = this.presses.get(i);
+                if(press != NONE) {
+                    latencies[i][counts[i]++] = press - this.cue;
+                } else {
+                    log.warn("Calibration: no press from " + this.players[i].getName() + " after " + name + " " + trial);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the first press of each player after the cue. The pipeline has
+     * already subtracted the current offset, it is added back here, since the
+     * calibration needs the raw latency. Only the verification pass records
+     * the corrected press.
+     * @param player The player that pressed the buzzer
+     * @param timestamp When the buzzer was pressed, corrected
+     */
+    @Override
+    public void onBuzz(Player player, long timestamp) {
+        final Integer index = this.indices.get(player);
+        if(index == null) {
+            return;
+        }
+
+        final long raw = timestamp + player.getBuzzerOffset();
+        final long cue = this.cue;
+
+        // Presses before the cue are guesses, not reactions
+        if(cue != NONE && raw >= cue && this.presses.compareAndSet(index, NONE, this.verifying ? timestamp : raw)) {
+            this.pending.countDown();
+        }
+    }
+
+    /**
+     * Gives the cue, i.e. switches on all LEDs at once.
+     */
+    private void cue() {
+        this.cue = this.clock().nanoTime();
+        if(this.players.length > 0) {
+            this.board().set(0, this.all);
+        }
+    }
+
+    /**
+     * Ends the current trial, i.e. switches off all LEDs.
+     */
+    private void reset() {
+        if(this.players.length > 0) {
+            this.board().clear(0, this.all);
+        }
+    }
+
+    /**
+     * Gets the board all players are connected to.
+     * @return The PlayerBoard
+     */
+    private PlayerBoard board() {
+        return this.players[0].getBoard();
+    }
+
+    /**
+     * Gets the clock of the board all players are connected to.
+     * @return The Clock, the SystemClock if there are no players
+     */
+    private Clock clock() {
+        return this.players.length > 0 ? this.board().getClock() : SystemClock.INSTANCE;
+    }
+}
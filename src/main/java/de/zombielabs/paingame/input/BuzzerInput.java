@@ -0,0 +1,111 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.InputListener;
+import de.zombielabs.paingame.io.PlayerBoard;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The BuzzerInput class is the input pipeline of all buzzers.
+ *
+ * It listens to the players' board, which takes a timestamp as soon as a
+ * buzzer is pressed, and corrects that timestamp by the buzzer's latency (see
+ * Player.getBuzzerOffset()) before any BuzzerListener gets to see it. That way
+ * all buzzers are equally fast, no matter how they are wired.
+ * @author steps
+ */
+public class BuzzerInput implements InputListener {
+
+    /**
+     * All BuzzerListener instances that listen in on the buzzers.
+     */
+    private final List<BuzzerListener> listeners = new CopyOnWriteArrayList<BuzzerListener>();
+
+    /**
+     * The attached players, by slot.
+     */
+    private volatile Player[] slots = new Player[PlayerBoard.MAX_PLAYERS];
+
+    /**
+     * The board this input is attached to, null if detached.
+     */
+    private PlayerBoard board;
+
+    /**
+     * Adds a new BuzzerListener.
+     * @param listener The listener to add
+     */
+    public void addListener(BuzzerListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a BuzzerListener.
+     * @param listener The listener to remove
+     */
+    public void removeListener(BuzzerListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Starts listening to the buzzers of the given players. All players must be
+     * on the same board.
+     * @param players The players whose buzzers to listen to
+     */
+    public synchronized void attach(List<Player> players) {
+        this.detach();
+        if(players.isEmpty()) {
+            return;
+        }
+
+        final Player[] bySlot = new Player[PlayerBoard.MAX_PLAYERS];
+        for(final Player player : players) {
+            bySlot[player.getSlot()] = player;
+        }
+        this.slots = bySlot;
+
+        this.board = players.get(0).getBoard();
+        this.board.setInputListener(this);
+    }
+
+    /**
+     * Stops listening to the buzzers.
+     */
+    public synchronized void detach() {
+        if(this.board != null) {
+            this.board.setInputListener(null);
+            this.board = null;
+        }
+        this.slots = new Player[PlayerBoard.MAX_PLAYERS];
+    }
+
+    /**
+     * Is called by the board whenever buzzers are pressed.
+     * @param pressed The bitmask of all buzzers that were pressed
+     * @param timestamp When they were pressed, in nanoseconds, uncorrected
+     */
+    @Override
+    public void onInput(long pressed, long timestamp) {
+        final Player[] bySlot = this.slots;
+        while(pressed != 0) {
+            final Player player = bySlot[Long.numberOfTrailingZeros(pressed)];
+            if(player != null) {
+                this.buzz(player, timestamp);
+            }
+            pressed &= pressed - 1;
+        }
+    }
+
+    /**
+     * Feeds a buzzer press into the pipeline.
+     * @param player The player that pressed the buzzer
+     * @param rawTimestamp When the press was seen, in nanoseconds, uncorrected
+     */
+    public void buzz(Player player, long rawTimestamp) {
+        final long timestamp = rawTimestamp - player.getBuzzerOffset();
+        for(final BuzzerListener listener : this.listeners) {
+            listener.onBuzz(player, timestamp);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+
+/**
+ * The BuzzerListener interface allows other instances to get notified whenever
+ * a player presses his/her buzzer.
+ * @author steps
+ */
+public interface BuzzerListener {
+    /**
+     * Called when a player pressed the buzzer.
+     * @param player The player that pressed the buzzer
+     * @param timestamp When the buzzer was pressed, in nanoseconds (same time
+     * base as System.nanoTime()), already corrected by the buzzer's latency
+     */
+    void onBuzz(Player player, long timestamp);
+}
@@ -0,0 +1,229 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CalibrationReport holds the results of a BuzzerCalibration: the measured
+ * latency and the resulting offset of every buzzer, as well as the skew that
+ * is left in a verification pass, i.e. in fresh presses that have been
+ * corrected by those offsets.
+ *
+ * All times are in nanoseconds.
+ * @author steps
+ */
+public class CalibrationReport {
+
+    /**
+     * The calibrated players.
+     */
+    private final Player[] players;
+
+    /**
+     * The amount of measurements per player.
+     */
+    private final int[] samples;
+
+    /**
+     * The median latency per player, -1 if there are no measurements.
+     */
+    private final long[] latencies;
+
+    /**
+     * The offset per player, i.e. the latency relative to the fastest buzzer.
+     */
+    private final long[] offsets;
+
+    /**
+     * The amount of measurements per player in the verification pass.
+     */
+    private final int[] verified;
+
+    /**
+     * The median corrected latency per player in the verification pass.
+     */
+    private final long[] residuals;
+
+    /**
+     * The median absolute deviation of the measurements per player.
+     */
+    private final long[] jitter;
+
+    /**
+     * Initializes a new instance of the CalibrationReport class.
+     * @param players The calibrated players
+     * @param measurements The measured latencies per player
+     * @param counts The amount of valid measurements per player
+     */
+    CalibrationReport(Player[] players, long[][] measurements, int[] counts) {
+        this.players = players;
+        this.samples = counts.clone();
+        this.latencies = new long[players.length];
+        this.offsets = new long[players.length];
+        this.verified = new int[players.length];
+        this.residuals = new long[players.length];
+        this.jitter = new long[players.length];
+
+        long fastest = Long.MAX_VALUE;
+        for(int i=0; i<players.length; i++) {
+            final long[] values = Arrays.copyOf(measurements[i], counts[i]);
+            Arrays.sort(values);
+
+            if(values.length == 0) {
+                this.latencies[i] = -1;
+                continue;
+            }
+
+            this.latencies[i] = median(values);
+            fastest = Math.min(fastest, this.latencies[i]);
+
+            final long[] deviations = new long[values.length];
+            for(int k=0; k<values.length; k++) {
+                deviations[k] = Math.abs(values[k] - this.latencies[i]);
+            }
+            Arrays.sort(deviations);
+            this.jitter[i] = median(deviations);
+        }
+
+        for(int i=0; i<players.length; i++) {
+            if(this.latencies[i] < 0) {
+                continue;
+            }
+
+            this.offsets[i] = this.latencies[i] - fastest;
+        }
+    }
+
+    /**
+     * Adds the results of the verification pass.
+     * @param corrected The latencies per player, measured with the offsets of
+     * this report in effect
+     * @param counts The amount of valid measurements per player
+     */
+    void verify(long[][] corrected, int[] counts) {
+        for(int i=0; i<this.players.length; i++) {
+            this.verified[i] = counts[i];
+            if(counts[i] > 0) {
+                final long[] values = Arrays.copyOf(corrected[i], counts[i]);
+                Arrays.sort(values);
+                this.residuals[i] = median(values);
+            }
+        }
+    }
+
+    /**
+     * Sets the offsets of all players that have been measured.
+     */
+    public void apply() {
+        for(int i=0; i<this.players.length; i++) {
+            if(this.latencies[i] >= 0) {
+                this.players[i].setBuzzerOffset(this.offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the offset of a player.
+     * @param index The index of the player
+     * @return The offset, 0 if the player has not been measured
+     */
+    public long getOffset(int index) {
+        return this.offsets[index];
+    }
+
+    /**
+     * Gets the skew between the buzzers before correction, i.e. the difference
+     * between the slowest and the fastest median latency.
+     * @return The skew before correction
+     */
+    public long getSkewBefore() {
+        return spread(this.latencies, this.samples);
+    }
+
+    /**
+     * Gets the skew between the buzzers that is left after correction, i.e.
+     * the difference between the slowest and the fastest median latency of the
+     * verification pass. The offsets were in effect during that pass, but have
+     * not been derived from it, so this is what correction actually evens out.
+     * @return The residual skew, 0 if there has been no verification
+     */
+    public long getSkewAfter() {
+        return spread(this.residuals, this.verified);
+    }
+
+    /**
+     * Gets a String that represents this report, including the lines to put
+     * into the configuration file.
+     * @return A human readable table
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("Buzzer calibration\n");
+
+        for(int i=0; i<this.players.length; i++) {
+            builder.append(String.format("  %-12s ", this.players[i].getName()));
+            if(this.latencies[i] < 0) {
+                builder.append("no measurements, offset unchanged\n");
+            } else {
+                builder.append(String.format("%2d samples, latency %8d us, jitter %6d us, offset %8d us, ",
+                        this.samples[i], micros(this.latencies[i]), micros(this.jitter[i]), micros(this.offsets[i])));
+                if(this.verified[i] > 0) {
+                    builder.append(String.format("corrected %8d us (%d checks)%n", micros(this.residuals[i]), this.verified[i]));
+                } else {
+                    builder.append(String.format("not verified%n"));
+                }
+            }
+        }
+
+        builder.append(String.format("  Skew before correction: %d us, residual skew in verification: %d us%n",
+                micros(this.getSkewBefore()), micros(this.getSkewAfter())));
+
+        builder.append("  Configuration:\n");
+        for(int i=0; i<this.players.length; i++) {
+            if(this.latencies[i] >= 0) {
+                builder.append("    player.").append(i + 1).append(".buzzerOffset=").append(micros(this.offsets[i])).append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Gets the median of sorted values.
+     * @param values The values, sorted and not empty
+     * @return The median
+     */
+    private static long median(long[] values) {
+        final int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    /**
+     * Gets the difference between the highest and the lowest value, ignoring
+     * players without measurements.
+     * @param values The values per player
+     * @param counts The amount of measurements per player
+     * @return The spread, 0 if there are less than two values
+     */
+    private static long spread(long[] values, int[] counts) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for(int i=0; i<values.length; i++) {
+            if(counts[i] > 0) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+        }
+        return max < min ? 0 : max - min;
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     * @param nanos The time in nanoseconds
+     * @return The time in microseconds
+     */
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,14 @@
+package de.zombielabs.paingame.input;
+
+/**
+ * The FirstBuzzListener interface allows other instances to get notified once
+ * a BuzzerArbiter has decided who pressed the buzzer first.
+ * @author steps
+ */
+public interface FirstBuzzListener {
+    /**
+     * Called once per arbitration, after the tie window has passed.
+     * @param decision Who pressed first and who tied
+     */
+    void onFirstBuzz(BuzzDecision decision);
+}
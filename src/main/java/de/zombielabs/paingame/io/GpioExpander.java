@@ -0,0 +1,203 @@
+package de.zombielabs.paingame.io;
+
+import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioPinDigitalInput;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.event.GpioPinDigitalStateChangeEvent;
+import com.pi4j.io.gpio.event.GpioPinListenerDigital;
+
+/**
+ * The GpioExpander is an IoExpander backed by provisioned pi4j pins. The pins
+ * can be the Raspberry Pi's own GPIOs or pins of I/O expander chips (e.g. an
+ * MCP23017 on the I2C bus), in any mix.
+ *
+ * Only outputs that actually change are written, so writing the whole state
+ * costs one pin operation per changed output.
+ *
+ * A buzzer is pressed while its pin is high, unless it is active low: then
+ * it is pressed while its pin is low, e.g. on an MCP23017, whose inputs can
+ * only be pulled up.
+ * @author steps
+ */
+public class GpioExpander implements IoExpander {
+
+    /**
+     * The GpioController the pins have been provisioned with.
+     */
+    private final GpioController gpio;
+
+    /**
+     * The shock output of every slot.
+     */
+    private final GpioPinDigitalOutput[] shockPins;
+
+    /**
+     * The LED output of every slot.
+     */
+    private final GpioPinDigitalOutput[] ledPins;
+
+    /**
+     * The buzzer input of every slot.
+     */
+    private final GpioPinDigitalInput[] buzzerPins;
+
+    /**
+     * The bitmask of the buzzers that are pressed while their pin is low.
+     */
+    private final long activeLow;
+
+    /**
+     * The pin listener of every buzzer.
+     */
+    private final GpioPinListenerDigital[] buzzerListeners;
+
+    /**
+     * The shock outputs as last written.
+     */
+    private long shock;
+
+    /**
+     * The LED outputs as last written.
+     */
+    private long led;
+
+    /**
+     * Gets notified when buzzers are pressed.
+     */
+    private volatile InputListener listener;
+
+    /**
+     * Initializes a new instance of the GpioExpander class. All arrays must have
+     * the same length, index n is slot n.
+     * @param gpio The GpioController the pins have been provisioned with
+     * @param shockPins The shock output of every slot
+     * @param ledPins The LED output of every slot
+     * @param buzzerPins The buzzer input of every slot
+     * @throws IllegalArgumentException if the arrays differ in length or have
+     * more than 64 entries
+     */
+    public GpioExpander(GpioController gpio, GpioPinDigitalOutput[] shockPins, GpioPinDigitalOutput[] ledPins, GpioPinDigitalInput[] buzzerPins) {
+        this(gpio, shockPins, ledPins, buzzerPins, 0);
+    }
+
+    /**
+     * Initializes a new instance of the GpioExpander class with some buzzers
+     * being active low. All arrays must have the same length, index n is slot
+     * n.
+     * @param gpio The GpioController the pins have been provisioned with
+     * @param shockPins The shock output of every slot
+     * @param ledPins The LED output of every slot
+     * @param buzzerPins The buzzer input of every slot
+     * @param activeLow The bitmask of the buzzers that are pressed while their
+     * pin is low
+     * @throws IllegalArgumentException if the arrays differ in length or have
+     * more than 64 entries
+     */
+    public GpioExpander(GpioController gpio, GpioPinDigitalOutput[] shockPins, GpioPinDigitalOutput[] ledPins, GpioPinDigitalInput[] buzzerPins, long activeLow) {
+        if(shockPins.length != ledPins.length || shockPins.length != buzzerPins.length) {
+            throw new IllegalArgumentException("There must be as many shock pins as LED pins and buzzer pins");
+        }
+
+        if(shockPins.length > Long.SIZE) {
+            throw new IllegalArgumentException("There must not be more than " + Long.SIZE + " slots");
+        }
+
+        this.gpio = gpio;
+        this.shockPins = shockPins;
+        this.ledPins = ledPins;
+        this.buzzerPins = buzzerPins;
+        this.activeLow = activeLow;
+        this.buzzerListeners = new GpioPinListenerDigital[buzzerPins.length];
+
+        for(int i=0; i<buzzerPins.length; i++) {
+            final long mask = 1L << i;
+            final boolean pressedLow = (activeLow & mask) != 0;
+            this.buzzerListeners[i] = new GpioPinListenerDigital() {
+                @Override
+                public void handleGpioPinDigitalStateChangeEvent(GpioPinDigitalStateChangeEvent event) {
+                    // Take the time first, everything else adds latency
+                    final long now = System.nanoTime();
+                    final InputListener target = listener;
+                    if(target != null && event.getState().isHigh() != pressedLow) {
+                        target.onInput(mask, now);
+                    }
+                }
+            };
+            buzzerPins[i].addListener(this.buzzerListeners[i]);
+        }
+    }
+
+    /**
+     * Gets the amount of slots.
+     * @return The amount of slots
+     */
+    @Override
+    public int getCapacity() {
+        return shockPins.length;
+    }
+
+    /**
+     * Writes all outputs that have changed since the last write.
+     * @param shock The bitmask of all shock outputs that should be high
+     * @param led The bitmask of all LED outputs that should be high
+     */
+    @Override
+    public synchronized void write(long shock, long led) {
+        apply(this.shockPins, this.shock ^ shock, shock);
+        apply(this.ledPins, this.led ^ led, led);
+        this.shock = shock;
+        this.led = led;
+    }
+
+    /**
+     * Reads all buzzer pins.
+     * @return The bitmask of all buzzers that are pressed
+     */
+    @Override
+    public long read() {
+        long high = 0;
+        for(int i=0; i<this.buzzerPins.length; i++) {
+            if(this.buzzerPins[i].isHigh()) {
+                high |= 1L << i;
+            }
+        }
+        return high ^ this.activeLow;
+    }
+
+    /**
+     * Sets the listener that gets notified when buzzers are pressed.
+     * @param listener The listener, null to remove it
+     */
+    @Override
+    public void setInputListener(InputListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switches off all outputs and unprovisions all pins.
+     */
+    @Override
+    public void shutdown() {
+        this.write(0, 0);
+        this.listener = null;
+
+        for(int i=0; i<this.buzzerPins.length; i++) {
+            this.buzzerPins[i].removeListener(this.buzzerListeners[i]);
+            this.gpio.unprovisionPin(this.shockPins[i], this.ledPins[i], this.buzzerPins[i]);
+        }
+    }
+
+    /**
+     * Sets the pins whose bit has changed.
+     * @param pins The pins
+     * @param changed The bitmask of the pins to set
+     * @param state The bitmask of the new states
+     */
+    private static void apply(GpioPinDigitalOutput[] pins, long changed, long state) {
+        while(changed != 0) {
+            final int slot = Long.numberOfTrailingZeros(changed);
+            pins[slot].setState((state & (1L << slot)) != 0);
+            changed &= changed - 1;
+        }
+    }
+}
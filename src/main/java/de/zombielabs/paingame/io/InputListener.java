@@ -0,0 +1,16 @@
+package de.zombielabs.paingame.io;
+
+/**
+ * The InputListener interface allows other instances to get notified whenever
+ * inputs of an IoExpander go high.
+ * @author steps
+ */
+public interface InputListener {
+    /**
+     * Called when one or more inputs went high.
+     * @param pressed A bitmask of the inputs that went high, bit n is slot n
+     * @param timestamp When the inputs went high, in nanoseconds (same time base
+     * as System.nanoTime())
+     */
+    void onInput(long pressed, long timestamp);
+}
@@ -0,0 +1,41 @@
+package de.zombielabs.paingame.io;
+
+/**
+ * The IoExpander interface is the hardware behind a PlayerBoard: a number of
+ * slots, each with two outputs (shock and LED) and one input (the buzzer).
+ *
+ * All state is passed as bitmasks, bit n being slot n. That's why there can be
+ * no more than 64 slots.
+ * @author steps
+ */
+public interface IoExpander {
+    /**
+     * Gets the amount of slots, i.e. the maximum amount of players.
+     * @return The amount of slots, at most 64
+     */
+    int getCapacity();
+
+    /**
+     * Sets all outputs at once.
+     * @param shock The bitmask of all shock outputs that should be high
+     * @param led The bitmask of all LED outputs that should be high
+     */
+    void write(long shock, long led);
+
+    /**
+     * Reads all inputs at once.
+     * @return The bitmask of all buzzer inputs that are high
+     */
+    long read();
+
+    /**
+     * Sets the listener that gets notified whenever inputs go high.
+     * @param listener The listener, null to remove it
+     */
+    void setInputListener(InputListener listener);
+
+    /**
+     * Switches off all outputs and releases the hardware.
+     */
+    void shutdown();
+}
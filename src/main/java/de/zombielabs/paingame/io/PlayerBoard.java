@@ -0,0 +1,264 @@
+package de.zombielabs.paingame.io;
+
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The PlayerBoard holds the output state of all players and drives the
+ * IoExpander behind them.
+ *
+ * Every player has a slot on the board, bit n of every bitmask is the player in
+ * slot n. The shock and LED outputs of all players are kept in one word each,
+ * so switching any set of outputs, e.g. shocking everybody who lost a round, is
+ * a single atomic operation followed by a single write to the expander.
+ *
+ * The board also keeps the Clock everybody playing on it goes by.
+ * @author steps
+ */
+public class PlayerBoard {
+
+    /**
+     * The maximum amount of players on a board.
+     */
+    public static final int MAX_PLAYERS = Long.SIZE;
+
+    /**
+     * The hardware behind this board.
+     */
+    private final IoExpander expander;
+
+    /**
+     * The shock outputs of all players.
+     */
+    private final AtomicLong shock = new AtomicLong();
+
+    /**
+     * The LED outputs of all players.
+     */
+    private final AtomicLong led = new AtomicLong();
+
+    /**
+     * The clock pulses are timed with.
+     */
+    private final Clock clock;
+
+    /**
+     * Is set once the board has been shut down, pulses still running must not
+     * touch the hardware anymore.
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * Pulses that have ended and can be used again, so pulsing does not
+     * allocate anything.
+     */
+    private final ArrayDeque<Pulse> idlePulses = new ArrayDeque<Pulse>();
+
+    /**
+     * Switches outputs off again at the end of a pulse.
+     */
+    private final class Pulse implements Runnable {
+
+        /**
+         * The shock outputs to switch off.
+         */
+        private long shockMask;
+
+        /**
+         * The LED outputs to switch off.
+         */
+        private long ledMask;
+
+        /**
+         * Switches the outputs off and puts this pulse back for the next one.
+         */
+        @Override
+        public void run() {
+            final long shockOff = this.shockMask;
+            final long ledOff = this.ledMask;
+            synchronized(idlePulses) {
+                idlePulses.push(this);
+            }
+
+            if(!shutdown) {
+                clear(shockOff, ledOff);
+            }
+        }
+    }
+
+    /**
+     * Initializes a new instance of the PlayerBoard class that goes by the
+     * SystemClock. All outputs are switched off.
+     * @param expander The hardware behind this board
+     */
+    public PlayerBoard(IoExpander expander) {
+        this(expander, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Initializes a new instance of the PlayerBoard class. All outputs are
+     * switched off.
+     * @param expander The hardware behind this board
+     * @param clock The clock everybody playing on this board goes by
+     * @throws IllegalArgumentException if clock is null
+     */
+    public PlayerBoard(IoExpander expander, Clock clock) {
+        if(clock == null) {
+            throw new IllegalArgumentException("Parameter 'clock' must not be null");
+        }
+
+        this.expander = expander;
+        this.clock = clock;
+        this.flush();
+    }
+
+    /**
+     * Gets the clock everybody playing on this board goes by.
+     * @return The Clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Gets the hardware behind this board.
+     * @return The IoExpander
+     */
+    public IoExpander getExpander() {
+        return expander;
+    }
+
+    /**
+     * Gets the amount of slots on this board.
+     * @return The maximum amount of players
+     */
+    public int getCapacity() {
+        return expander.getCapacity();
+    }
+
+    /**
+     * Gets the shock outputs of all players.
+     * @return The bitmask of all shock outputs that are on
+     */
+    public long getShock() {
+        return shock.get();
+    }
+
+    /**
+     * Gets the LED outputs of all players.
+     * @return The bitmask of all LED outputs that are on
+     */
+    public long getLED() {
+        return led.get();
+    }
+
+    /**
+     * Switches outputs on.
+     * @param shockMask The bitmask of the shock outputs to switch on
+     * @param ledMask The bitmask of the LED outputs to switch on
+     */
+    public void set(long shockMask, long ledMask) {
+        update(this.shock, shockMask, 0);
+        update(this.led, ledMask, 0);
+        this.flush();
+    }
+
+    /**
+     * Switches outputs off.
+     * @param shockMask The bitmask of the shock outputs to switch off
+     * @param ledMask The bitmask of the LED outputs to switch off
+     */
+    public void clear(long shockMask, long ledMask) {
+        update(this.shock, 0, shockMask);
+        update(this.led, 0, ledMask);
+        this.flush();
+    }
+
+    /**
+     * Switches off all outputs.
+     */
+    public void reset() {
+        this.clear(-1L, -1L);
+    }
+
+    /**
+     * Switches outputs on for a given amount of time.
+     * @param shockMask The bitmask of the shock outputs to switch on
+     * @param ledMask The bitmask of the LED outputs to switch on
+     * @param duration The amount of time, in milliseconds
+     * @param blocking If true, returns only after the outputs are off again
+     */
+    public void pulse(long shockMask, long ledMask, long duration, boolean blocking) {
+        this.set(shockMask, ledMask);
+
+        if(blocking) {
+            try {
+                this.clock.sleep(duration);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                this.clear(shockMask, ledMask);
+            }
+        } else {
+            Pulse pulse;
+            synchronized(this.idlePulses) {
+                pulse = this.idlePulses.poll();
+            }
+            if(pulse == null) {
+                pulse = new Pulse();
+            }
+
+            pulse.shockMask = shockMask;
+            pulse.ledMask = ledMask;
+            this.clock.schedule(pulse, duration);
+        }
+    }
+
+    /**
+     * Reads the buzzers of all players at once.
+     * @return The bitmask of all buzzers that are pressed
+     */
+    public long readBuzzers() {
+        return this.expander.read();
+    }
+
+    /**
+     * Sets the listener that gets notified whenever buzzers are pressed.
+     * @param listener The listener, null to remove it
+     */
+    public void setInputListener(InputListener listener) {
+        this.expander.setInputListener(listener);
+    }
+
+    /**
+     * Switches off all outputs and releases the hardware.
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        this.reset();
+        this.expander.shutdown();
+    }
+
+    /**
+     * Writes the current state to the expander. Whoever writes last, writes
+     * the latest state.
+     */
+    private synchronized void flush() {
+        this.expander.write(this.shock.get(), this.led.get());
+    }
+
+    /**
+     * Sets and clears bits of a word atomically.
+     * @param word The word to update
+     * @param set The bits to set
+     * @param clear The bits to clear
+     */
+    private static void update(AtomicLong word, long set, long clear) {
+        long current;
+        do {
+            current = word.get();
+        } while(!word.compareAndSet(current, (current | set) & ~clear));
+    }
+}
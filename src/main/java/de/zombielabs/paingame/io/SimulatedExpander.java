@@ -0,0 +1,199 @@
+package de.zombielabs.paingame.io;
+
+import de.zombielabs.paingame.time.Clock;
+import de.zombielabs.paingame.time.SystemClock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SimulatedExpander is an IoExpander without any hardware. Outputs are only
+ * remembered, buzzers are pressed by calling press().
+ *
+ * Is used in development mode and for tests. Counts all writes and output
+ * transitions, so tests can check what would have happened to the pins.
+ * @author steps
+ */
+public class SimulatedExpander implements IoExpander {
+
+    /**
+     * The amount of slots.
+     */
+    private final int capacity;
+
+    /**
+     * The clock presses are timestamped with.
+     */
+    private final Clock clock;
+
+    /**
+     * The current shock outputs.
+     */
+    private volatile long shock;
+
+    /**
+     * The current LED outputs.
+     */
+    private volatile long led;
+
+    /**
+     * The current buzzer inputs.
+     */
+    private final AtomicLong buzzers = new AtomicLong();
+
+    /**
+     * The amount of calls to write().
+     */
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * The amount of single outputs that changed their state.
+     */
+    private final AtomicLong transitions = new AtomicLong();
+
+    /**
+     * Gets notified when buzzers are pressed.
+     */
+    private volatile InputListener listener;
+
+    /**
+     * Initializes a new instance of the SimulatedExpander class that goes by
+     * the SystemClock.
+     * @param capacity The amount of slots
+     * @throws IllegalArgumentException if capacity is not between 0 and 64
+     */
+    public SimulatedExpander(int capacity) {
+        this(capacity, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Initializes a new instance of the SimulatedExpander class.
+     * @param capacity The amount of slots
+     * @param clock The clock presses are timestamped with
+     * @throws IllegalArgumentException if capacity is not between 0 and 64
+     */
+    public SimulatedExpander(int capacity, Clock clock) {
+        if(capacity < 0 || capacity > Long.SIZE) {
+            throw new IllegalArgumentException("Parameter 'capacity' must be between 0 and " + Long.SIZE);
+        }
+
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the amount of slots.
+     * @return The amount of slots
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Remembers the outputs and counts the transitions.
+     * @param shock The bitmask of all shock outputs that should be high
+     * @param led The bitmask of all LED outputs that should be high
+     */
+    @Override
+    public synchronized void write(long shock, long led) {
+        this.transitions.addAndGet(Long.bitCount(this.shock ^ shock) + Long.bitCount(this.led ^ led));
+        this.writes.incrementAndGet();
+        this.shock = shock;
+        this.led = led;
+    }
+
+    /**
+     * Reads the simulated buzzers.
+     * @return The bitmask of all buzzers that are pressed
+     */
+    @Override
+    public long read() {
+        return this.buzzers.get();
+    }
+
+    /**
+     * Sets the listener that gets notified by press().
+     * @param listener The listener, null to remove it
+     */
+    @Override
+    public void setInputListener(InputListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switches off all outputs.
+     */
+    @Override
+    public void shutdown() {
+        this.write(0, 0);
+        this.listener = null;
+    }
+
+    /**
+     * Presses buzzers now.
+     * @param mask The bitmask of the buzzers to press
+     */
+    public void press(long mask) {
+        this.press(mask, this.clock.nanoTime());
+    }
+
+    /**
+     * Presses buzzers. Buzzers that are already pressed are not reported again.
+     * @param mask The bitmask of the buzzers to press
+     * @param timestamp When the buzzers were pressed, in nanoseconds
+     */
+    public void press(long mask, long timestamp) {
+        long current;
+        do {
+            current = this.buzzers.get();
+        } while(!this.buzzers.compareAndSet(current, current | mask));
+
+        final long pressed = mask & ~current;
+        final InputListener target = this.listener;
+        if(pressed != 0 && target != null) {
+            target.onInput(pressed, timestamp);
+        }
+    }
+
+    /**
+     * Releases buzzers.
+     * @param mask The bitmask of the buzzers to release
+     */
+    public void release(long mask) {
+        long current;
+        do {
+            current = this.buzzers.get();
+        } while(!this.buzzers.compareAndSet(current, current & ~mask));
+    }
+
+    /**
+     * Gets the current shock outputs.
+     * @return The bitmask of all shock outputs that are high
+     */
+    public long getShock() {
+        return shock;
+    }
+
+    /**
+     * Gets the current LED outputs.
+     * @return The bitmask of all LED outputs that are high
+     */
+    public long getLED() {
+        return led;
+    }
+
+    /**
+     * Gets the amount of calls to write().
+     * @return The amount of writes
+     */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * Gets the amount of single outputs that changed their state.
+     * @return The amount of transitions
+     */
+    public long getTransitions() {
+        return transitions.get();
+    }
+}
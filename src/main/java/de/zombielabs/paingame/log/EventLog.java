@@ -0,0 +1,388 @@
+package de.zombielabs.paingame.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * The EventLog takes the logging of routine events off the game's thread.
+ *
+ * Logging an event only copies its fields into a ring of records that has
+ * been allocated up front, no message is built and nothing is written there.
+ * A background thread formats the records and hands them to log4j, with the
+ * time and thread they were logged at. Should that thread fall behind, e.g.
+ * because the SD card is slow, records are dropped and counted instead of
+ * making the game wait; the log says how many.
+ *
+ * Any thread may log. Errors with a stack trace should still go to log4j
+ * directly, they are rare and nobody waits for them.
+ * @author steps
+ */
+public final class EventLog {
+
+    /**
+     * The log, used to report dropped records.
+     */
+    private static final Logger log = LogManager.getLogger(EventLog.class);
+
+    /**
+     * The amount of records the shared EventLog can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The EventLog shared by all games.
+     */
+    public static final EventLog INSTANCE = new EventLog(DEFAULT_CAPACITY);
+
+    /**
+     * Used to find the point of the call, see LoggingEvent.
+     */
+    private static final String FQCN = EventLog.class.getName();
+
+    /**
+     * The capacity minus one, to find a record's index.
+     */
+    private final int mask;
+
+    /**
+     * The loggers of the records.
+     */
+    private final Logger[] loggers;
+
+    /**
+     * The events of the records.
+     */
+    private final LogEvent[] events;
+
+    /**
+     * The subjects of the records.
+     */
+    private final Object[] subjects;
+
+    /**
+     * The details of the records.
+     */
+    private final Object[] details;
+
+    /**
+     * The first numbers of the records.
+     */
+    private final long[] firsts;
+
+    /**
+     * The second numbers of the records.
+     */
+    private final long[] seconds;
+
+    /**
+     * When the records were logged, by System.currentTimeMillis().
+     */
+    private final long[] times;
+
+    /**
+     * The threads that logged the records.
+     */
+    private final Thread[] threads;
+
+    /**
+     * The sequence number of the record in each slot, once it is complete.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The sequence number of the next record to log.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * The sequence number of the next record to write. Only the background
+     * thread moves it.
+     */
+    private volatile long written = 0;
+
+    /**
+     * The amount of records that have been handed to log4j. Lags behind
+     * written while a record is being appended.
+     */
+    private volatile long appended = 0;
+
+    /**
+     * The amount of records that have been dropped.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Is set once the background thread should stop.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Is set while the background thread has nothing to write and is about to
+     * park, whoever logs then unparks it.
+     */
+    private volatile boolean idle = false;
+
+    /**
+     * The background thread.
+     */
+    private final Thread writer;
+
+    /**
+     * Set on the threads whose events are ignored, see setMuted.
+     */
+    private final ThreadLocal<Boolean> muted = new ThreadLocal<Boolean>();
+
+    /**
+     * Initializes a new instance of the EventLog class and starts its
+     * background thread. Usually INSTANCE is used.
+     * @param capacity The amount of records that can wait to be written, a
+     * power of two
+     * @throws IllegalArgumentException if capacity is not a power of two
+     */
+    public EventLog(int capacity) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Parameter 'capacity' must be a power of two");
+        }
+
+        this.mask = capacity - 1;
+        this.loggers = new Logger[capacity];
+        this.events = new LogEvent[capacity];
+        this.subjects = new Object[capacity];
+        this.details = new Object[capacity];
+        this.firsts = new long[capacity];
+        this.seconds = new long[capacity];
+        this.times = new long[capacity];
+        this.threads = new Thread[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for(int i=0; i<capacity; i++) {
+            this.published.set(i, -1);
+        }
+
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeRecords();
+            }
+        }, "log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Logs an event without numbers.
+     * @param logger The logger to log with
+     * @param event The event
+     * @param subject The subject of the event
+     * @return true if the event is logged, false if the logger ignores it or
+     * the record had to be dropped
+     */
+    public boolean log(Logger logger, LogEvent event, Object subject) {
+        return this.log(logger, event, subject, null, 0, 0);
+    }
+
+    /**
+     * Logs an event with a single number.
+     * @param logger The logger to log with
+     * @param event The event
+     * @param subject The subject of the event
+     * @param first The number
+     * @return true if the event is logged, false if the logger ignores it or
+     * the record had to be dropped
+     */
+    public boolean log(Logger logger, LogEvent event, Object subject, long first) {
+        return this.log(logger, event, subject, null, first, 0);
+    }
+
+    /**
+     * Logs an event with two numbers.
+     * @param logger The logger to log with
+     * @param event The event
+     * @param subject The subject of the event
+     * @param first The first number
+     * @param second The second number
+     * @return true if the event is logged, false if the logger ignores it or
+     * the record had to be dropped
+     */
+    public boolean log(Logger logger, LogEvent event, Object subject, long first, long second) {
+        return this.log(logger, event, subject, null, first, second);
+    }
+
+    /**
+     * Logs an event. Does not allocate, block or write anything, the record
+     * is written later by the background thread, which is woken up if it is
+     * idle. The subject and detail are only turned into strings then, they
+     * must not change until.
+     * @param logger The logger to log with
+     * @param event The event
+     * @param subject The subject of the event
+     * @param detail The detail of the event, may be null
+     * @param first The first number
+     * @param second The second number
+     * @return true if the event is logged, false if the logger ignores it, the
+     * calling thread is muted or the record had to be dropped
+     */
+    public boolean log(Logger logger, LogEvent event, Object subject, Object detail, long first, long second) {
+        if(!logger.isEnabledFor(event.getLevel()) || this.muted.get() != null) {
+            return false;
+        }
+
+        // Claim a slot, unless the writer is a whole ring behind
+        long sequence;
+        do {
+            sequence = this.claimed.get();
+            if(sequence - this.written > this.mask) {
+                this.dropped.incrementAndGet();
+                return false;
+            }
+        } while(!this.claimed.compareAndSet(sequence, sequence + 1));
+
+        final int i = (int) sequence & this.mask;
+        this.loggers[i] = logger;
+        this.events[i] = event;
+        this.subjects[i] = subject;
+        this.details[i] = detail;
+        this.firsts[i] = first;
+        this.seconds[i] = second;
+        this.times[i] = System.currentTimeMillis();
+        this.threads[i] = Thread.currentThread();
+
+        // Published before idle is read, see writeRecords
+        this.published.set(i, sequence);
+        if(this.idle) {
+            LockSupport.unpark(this.writer);
+        }
+        return true;
+    }
+
+    /**
+     * Ignores or logs again the events of the calling thread, e.g. while a
+     * game is played in a dry run whose events must not show up in the log.
+     * @param muted true to ignore the events, false to log them again
+     */
+    public void setMuted(boolean muted) {
+        if(muted) {
+            this.muted.set(Boolean.TRUE);
+        } else {
+            this.muted.remove();
+        }
+    }
+
+    /**
+     * Waits until every record logged so far has been written.
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return true if everything has been written, false if the timeout passed
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        final long target = this.claimed.get();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while(this.appended - target < 0) {
+            if(System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Writes everything logged so far and stops the background thread. Is not
+     * meant for INSTANCE, which lives as long as the application.
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        this.stopped = true;
+        LockSupport.unpark(this.writer);
+        this.writer.join();
+    }
+
+    /**
+     * Gets the amount of records that have been written.
+     * @return The amount of records
+     */
+    public long getWritten() {
+        return this.appended;
+    }
+
+    /**
+     * Gets the amount of records that have been dropped because the
+     * background thread could not keep up.
+     * @return The amount of records
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Gets the amount of records that can wait to be written.
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * Writes records as they come in, until stopped. Is run by the background
+     * thread.
+     */
+    private void writeRecords() {
+        long next = this.written;
+        long reported = 0;
+        while(true) {
+            final int i = (int) next & this.mask;
+            if(this.published.get(i) != next) {
+                final long lost = this.dropped.get();
+                if(lost != reported) {
+                    log.warn((lost - reported) + " log records have been dropped, the log can not keep up");
+                    reported = lost;
+                }
+
+                // Everything claimed before stopping is written first
+                if(this.stopped && next == this.claimed.get()) {
+                    return;
+                }
+
+                // Idle is set before looking again, so a record published
+                // after this look sees it and unparks the thread
+                this.idle = true;
+                if(this.published.get(i) != next && !this.stopped) {
+                    LockSupport.park(this);
+                }
+                this.idle = false;
+                continue;
+            }
+
+            final Logger logger = this.loggers[i];
+            final LogEvent event = this.events[i];
+            final Object subject = this.subjects[i];
+            final Object detail = this.details[i];
+            final long first = this.firsts[i];
+            final long second = this.seconds[i];
+            final long time = this.times[i];
+            final Thread thread = this.threads[i];
+
+            // Let go of the references, the slot is free once written moves
+            this.loggers[i] = null;
+            this.subjects[i] = null;
+            this.details[i] = null;
+            this.threads[i] = null;
+            this.written = ++next;
+
+            try {
+                final String message = event.format(subject, detail, first, second);
+                final LocationInfo location = new LocationInfo(null, logger.getName(), "?", "?");
+                logger.callAppenders(new LoggingEvent(FQCN, logger, time, event.getLevel(), message, thread.getName(), null, null, location, null));
+            } catch (RuntimeException ex) {
+                log.error("Unable to write " + event + ": " + ex.getMessage(), ex);
+            }
+            this.appended = next;
+        }
+    }
+}
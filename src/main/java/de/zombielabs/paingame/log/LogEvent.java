@@ -0,0 +1,132 @@
+package de.zombielabs.paingame.log;
+
+import org.apache.log4j.Level;
+
+/**
+ * All routine events that are logged while games are played.
+ *
+ * Every event has a fixed layout: a subject, an optional detail and two
+ * numbers. The message is only formatted once the EventLog writes it, with
+ * the subject as %1$s, the detail as %2$s and the numbers as %3$d and %4$d.
+ * @author steps
+ */
+public enum LogEvent {
+
+    /**
+     * A player has joined a game. Subject is the player, detail the game's name.
+     */
+    PLAYER_JOINED(Level.INFO, "%1$s dares to play %2$s"),
+
+    /**
+     * The magic number of Shocky has been drawn. The numbers are the magic
+     * number and the game's seed.
+     */
+    MAGIC_NUMBER(Level.INFO, "Magic number is %3$d (seed %4$d)"),
+
+    /**
+     * A round is about to start. Subject is the game's name, the numbers are
+     * the round and the total amount of rounds.
+     */
+    ROUND_STARTED(Level.INFO, "Round %3$d of %4$d of %1$s is about to start"),
+
+    /**
+     * The first round of a queued game has started. Subject is the game's
+     * name, the number is the time since the switch over in microseconds.
+     */
+    FIRST_ROUND(Level.INFO, "%1$s: first round started %3$d microseconds after the switch over"),
+
+    /**
+     * A player hit the magic number. Subject is the player.
+     */
+    MAGIC_NUMBER_HIT(Level.INFO, "Player '%1$s' hit the magic number"),
+
+    /**
+     * A player did not hit the magic number. Subject is the player, the number
+     * is what the player got.
+     */
+    LUCKY(Level.DEBUG, "Player '%1$s' was lucky this time (%3$d)"),
+
+    /**
+     * A single player is shocked. Subject is the player, the number is the
+     * duration in milliseconds.
+     */
+    SHOCK(Level.INFO, "Shocking '%1$s' for %3$d milliseconds"),
+
+    /**
+     * Several players are shocked at once. The numbers are the amount of
+     * players and the duration in milliseconds.
+     */
+    SHOCKS(Level.INFO, "Shocking %3$d player(s) for %4$d milliseconds"),
+
+    /**
+     * The ShockGovernor denied a shock. Subject is the player, detail the
+     * Verdict, the number is the duration in milliseconds.
+     */
+    SHOCK_DENIED(Level.WARN, "Not shocking '%1$s' for %3$d ms: %2$s"),
+
+    /**
+     * The pause before the next round. The number is the pause in seconds.
+     */
+    NEXT_ROUND(Level.INFO, "Next round will start in %3$d seconds..."),
+
+    /**
+     * A round has been played. Subject is the game's name, the numbers are the
+     * round and the total amount of rounds.
+     */
+    ROUND_ENDED(Level.INFO, "%3$d of %4$d rounds of %1$s have been played"),
+
+    /**
+     * A game has ended. Subject is the game's name.
+     */
+    GAME_ENDED(Level.INFO, "%1$s has ended"),
+
+    /**
+     * A player has won a game. Subject is the player.
+     */
+    WINNER(Level.INFO, "Winner: %1$s"),
+
+    /**
+     * All outputs but the winners' LEDs are switched off after a game.
+     */
+    OUTPUTS_RESET(Level.INFO, "Switching off LEDs etc");
+
+    /**
+     * The level the event is logged with.
+     */
+    private final Level level;
+
+    /**
+     * The format of the message.
+     */
+    private final String pattern;
+
+    /**
+     * Initializes a new LogEvent.
+     * @param level The level the event is logged with
+     * @param pattern The format of the message
+     */
+    private LogEvent(Level level, String pattern) {
+        this.level = level;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Gets the level the event is logged with.
+     * @return The Level
+     */
+    public Level getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Formats the message of the event.
+     * @param subject The subject
+     * @param detail The detail, may be null
+     * @param first The first number
+     * @param second The second number
+     * @return The message
+     */
+    public String format(Object subject, Object detail, long first, long second) {
+        return String.format(this.pattern, subject, detail, first, second);
+    }
+}
@@ -0,0 +1,121 @@
+package de.zombielabs.paingame.random;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import java.util.SplittableRandom;
+
+/**
+ * The GameRandom holds the random numbers of a single game.
+ *
+ * There is one stream for the game itself and one for each player. The
+ * streams are independent, so the numbers a player gets do not depend on how
+ * many numbers the game or the other players have drawn. All streams are
+ * derived from the game's seed, a GameRandom created with the same seed draws
+ * the same numbers.
+ *
+ * Like the SplittableRandom behind it, a GameRandom must only be used by one
+ * thread at a time, usually the game's thread.
+ * @author steps
+ */
+public final class GameRandom {
+
+    /**
+     * Spreads the seeds of the streams, the same constant SplittableRandom uses.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The seed all streams are derived from.
+     */
+    private final long seed;
+
+    /**
+     * The stream of the game itself.
+     */
+    private final SplittableRandom game;
+
+    /**
+     * The streams of the players, by slot, created on first use.
+     */
+    private final SplittableRandom[] players = new SplittableRandom[PlayerBoard.MAX_PLAYERS];
+
+    /**
+     * Initializes a new instance of the GameRandom class. Usually handed out by
+     * the RandomService, but can be created with a recorded seed to play a game
+     * again.
+     * @param seed The seed all streams are derived from
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+        this.game = this.stream(0);
+    }
+
+    /**
+     * Gets the seed all streams are derived from.
+     * @return The seed, to play the game again
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Draws a number from the game's stream.
+     * @param bound The upper bound, exclusive
+     * @return A number between 0 and bound - 1
+     */
+    public int nextInt(int bound) {
+        return this.game.nextInt(bound);
+    }
+
+    /**
+     * Draws a number from a player's stream.
+     * @param player The player to draw for
+     * @param bound The upper bound, exclusive
+     * @return A number between 0 and bound - 1
+     */
+    public int nextInt(Player player, int bound) {
+        return this.forPlayer(player).nextInt(bound);
+    }
+
+    /**
+     * Gets the stream of the game itself.
+     * @return The game's stream
+     */
+    public SplittableRandom forGame() {
+        return this.game;
+    }
+
+    /**
+     * Gets the stream of a player. It depends on the player's slot only.
+     * @param player The player
+     * @return The player's stream
+     */
+    public SplittableRandom forPlayer(Player player) {
+        final int slot = player.getSlot();
+        if(this.players[slot] == null) {
+            this.players[slot] = this.stream(slot + 1);
+        }
+        return this.players[slot];
+    }
+
+    /**
+     * Creates the n-th stream of this game.
+     * @param n The no. of the stream, 0 is the game itself
+     * @return The stream
+     */
+    private SplittableRandom stream(int n) {
+        return new SplittableRandom(mix(this.seed + n * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Mixes the bits of a seed, so seeds that are close together still end up
+     * far apart (the 64 bit finalizer of MurmurHash3).
+     * @param z The seed to mix
+     * @return The mixed seed
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,70 @@
+package de.zombielabs.paingame.random;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The RandomService is where all games get their random numbers from.
+ *
+ * It is seeded once, from secure entropy unless a seed is given, and hands
+ * every game its own GameRandom, seeded from a fast SplittableRandom. Nothing
+ * has to wait for entropy when a game starts, and since all seeds are derived
+ * from the one seed, which is logged, every game can be played again exactly
+ * as it was: either all of them, with the service's seed, or a single one,
+ * with the game's seed.
+ * @author steps
+ */
+public class RandomService {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(RandomService.class);
+
+    /**
+     * The seed all game seeds are derived from.
+     */
+    private final long seed;
+
+    /**
+     * Hands out the game seeds.
+     */
+    private final SplittableRandom seeds;
+
+    /**
+     * Initializes a new instance of the RandomService class, seeded from
+     * secure entropy.
+     */
+    public RandomService() {
+        this(new SecureRandom().nextLong());
+    }
+
+    /**
+     * Initializes a new instance of the RandomService class. Two services with
+     * the same seed hand out the same games.
+     * @param seed The seed all game seeds are derived from
+     */
+    public RandomService(long seed) {
+        this.seed = seed;
+        this.seeds = new SplittableRandom(seed);
+        log.info("Random seed is " + seed);
+    }
+
+    /**
+     * Gets the seed all game seeds are derived from.
+     * @return The seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Hands out the random numbers for the next game.
+     * @return A new GameRandom
+     */
+    public synchronized GameRandom next() {
+        return new GameRandom(this.seeds.nextLong());
+    }
+}
@@ -0,0 +1,318 @@
+package de.zombielabs.paingame.safety;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.log.LogEvent;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The ShockGovernor decides whether a player may be shocked right now.
+ *
+ * No matter what a game asks for, each player has a budget (see ShockLimits):
+ * a maximum amount of shocks and a maximum total shock time per window, and a
+ * minimum gap between two shocks. The window slides: no window of that length,
+ * wherever it starts, ever holds more shocks or more shock time than allowed.
+ * To check this, a budget keeps the start and end of the player's recent
+ * shocks in a ring. Shock time is counted in full for every shock that is
+ * still in the window, even if it began before the window did.
+ *
+ * A decision locks the player's budget for a few dozen comparisons, and does
+ * not allocate anything. The lock is deliberate: a sliding window is more
+ * state than a single atomic can hold, and swapping in a new copy of the
+ * window with compareAndSet would allocate on every granted shock, i.e. in the
+ * middle of a round. Each player has a lock of their own, only held while
+ * their budget is checked, and games shock from a single thread, so it is
+ * not contended in practice. Everything outside the budgets, i.e. finding
+ * the budget, the limits and the counters, stays lock-free.
+ * @author steps
+ */
+public class ShockGovernor {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(ShockGovernor.class);
+
+    /**
+     * The outcome of a request to shock a player.
+     */
+    public enum Verdict {
+        /**
+         * The shock may be delivered.
+         */
+        GRANTED,
+        /**
+         * The player has been shocked too often during the window.
+         */
+        TOO_MANY,
+        /**
+         * The player has been shocked for too long during the window.
+         */
+        TOO_LONG,
+        /**
+         * The player's last shock was too recent.
+         */
+        TOO_SOON
+    }
+
+    /**
+     * The limits currently in effect.
+     */
+    private volatile ShockLimits limits;
+
+    /**
+     * The budgets of all players that have been shocked so far, by slot. A
+     * player set up again after a configuration change keeps the slot, and
+     * so the budget.
+     */
+    private final AtomicReferenceArray<Budget> budgets = new AtomicReferenceArray<Budget>(PlayerBoard.MAX_PLAYERS);
+
+    /**
+     * The amount of requests per Verdict, over all players.
+     */
+    private final AtomicLongArray verdicts = new AtomicLongArray(Verdict.values().length);
+
+    /**
+     * Initializes a new instance of the ShockGovernor class with the default
+     * limits.
+     */
+    public ShockGovernor() {
+        this(ShockLimits.DEFAULT);
+    }
+
+    /**
+     * Initializes a new instance of the ShockGovernor class.
+     * @param limits The limits to enforce
+     */
+    public ShockGovernor(ShockLimits limits) {
+        this.setLimits(limits);
+    }
+
+    /**
+     * Gets the limits currently in effect.
+     * @return The ShockLimits
+     */
+    public ShockLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Replaces the limits. Budgets already used up stay used up.
+     * @param limits The new limits
+     * @throws IllegalArgumentException if limits is null
+     */
+    public void setLimits(ShockLimits limits) {
+        if(limits == null) {
+            throw new IllegalArgumentException("Parameter 'limits' must not be null");
+        }
+
+        this.limits = limits;
+    }
+
+    /**
+     * Asks for permission to shock a player. If the shock is granted, it is
+     * charged to the player's budget right away.
+     * @param player The player to shock
+     * @param duration The duration of the shock, in milliseconds
+     * @return The Verdict, only GRANTED means the player may be shocked
+     */
+    public Verdict request(Player player, long duration) {
+        final ShockLimits current = this.limits;
+        final long now = player.getBoard().getClock().nanoTime();
+        final Budget budget = this.budgetOf(player);
+
+        final Verdict verdict = budget.charge(current, TimeUnit.MILLISECONDS.toNanos(duration), now);
+        this.verdicts.incrementAndGet(verdict.ordinal());
+        budget.verdicts.incrementAndGet(verdict.ordinal());
+
+        if(verdict != Verdict.GRANTED) {
+            EventLog.INSTANCE.log(log, LogEvent.SHOCK_DENIED, player.getName(), verdict, duration, 0);
+        }
+
+        return verdict;
+    }
+
+    /**
+     * Gets the amount of requests that ended with the given Verdict.
+     * @param verdict The Verdict to count
+     * @return The amount of requests over all players
+     */
+    public long getCount(Verdict verdict) {
+        return this.verdicts.get(verdict.ordinal());
+    }
+
+    /**
+     * Gets the amount of requests for a player that ended with the given Verdict.
+     * @param player The player
+     * @param verdict The Verdict to count
+     * @return The amount of requests
+     */
+    public long getCount(Player player, Verdict verdict) {
+        final Budget budget = this.budgets.get(player.getSlot());
+        return budget == null ? 0 : budget.verdicts.get(verdict.ordinal());
+    }
+
+    /**
+     * Gets the amount of denied requests over all players.
+     * @return The amount of requests that were not granted
+     */
+    public long getDenied() {
+        long denied = 0;
+        for(final Verdict verdict : Verdict.values()) {
+            if(verdict != Verdict.GRANTED) {
+                denied += this.getCount(verdict);
+            }
+        }
+        return denied;
+    }
+
+    /**
+     * Gets a player's budget, creates it on first use.
+     * @param player The player
+     * @return The player's Budget
+     */
+    private Budget budgetOf(Player player) {
+        final int slot = player.getSlot();
+        final Budget budget = this.budgets.get(slot);
+        if(budget != null) {
+            return budget;
+        }
+
+        final Budget created = new Budget(this.limits);
+        return this.budgets.compareAndSet(slot, null, created) ? created : this.budgets.get(slot);
+    }
+
+    /**
+     * The budget of a single player.
+     */
+    private static final class Budget {
+
+        /**
+         * When the recent granted shocks started, a ring in order of time.
+         */
+        private long[] starts;
+
+        /**
+         * When the recent granted shocks ended, along with starts.
+         */
+        private long[] ends;
+
+        /**
+         * Where the next shock goes in the ring.
+         */
+        private int next;
+
+        /**
+         * The amount of shocks in the ring.
+         */
+        private int size;
+
+        /**
+         * The amount of requests per Verdict.
+         */
+        private final AtomicLongArray verdicts = new AtomicLongArray(Verdict.values().length);
+
+        /**
+         * Initializes a new, full budget.
+         * @param limits The limits currently in effect
+         */
+        Budget(ShockLimits limits) {
+            this.starts = new long[capacity(limits)];
+            this.ends = new long[this.starts.length];
+        }
+
+        /**
+         * Charges a shock to this budget if all limits allow it.
+         * @param limits The limits to enforce
+         * @param duration The duration of the shock, in nanoseconds
+         * @param now The current time, in nanoseconds
+         * @return The Verdict
+         */
+        synchronized Verdict charge(ShockLimits limits, long duration, long now) {
+            final long window = TimeUnit.MILLISECONDS.toNanos(limits.getWindow());
+            final int capacity = this.starts.length;
+            final int newest = (this.next + capacity - 1) % capacity;
+
+            if(this.size > 0 && now - this.starts[newest] < TimeUnit.MILLISECONDS.toNanos(limits.getMinGap())) {
+                return Verdict.TOO_SOON;
+            }
+
+            // Any window holding part of this shock starts after now - window
+            int shocks = 0;
+            long onTime = duration;
+            for(int i=0, index=newest; i<this.size; i++, index=(index + capacity - 1) % capacity) {
+                if(now - this.starts[index] < window) {
+                    shocks++;
+                }
+
+                if(this.ends[index] - now + window > 0) {
+                    onTime += this.ends[index] - this.starts[index];
+                }
+            }
+
+            if(shocks >= limits.getMaxShocks()) {
+                return Verdict.TOO_MANY;
+            }
+
+            if(onTime > TimeUnit.MILLISECONDS.toNanos(limits.getMaxOnTime())) {
+                return Verdict.TOO_LONG;
+            }
+
+            this.add(now, now + duration, capacity(limits));
+            return Verdict.GRANTED;
+        }
+
+        /**
+         * Adds a granted shock to the ring, overwriting the oldest one if the
+         * ring is full.
+         * @param start When the shock starts, in nanoseconds
+         * @param end When the shock ends, in nanoseconds
+         * @param capacity The capacity the current limits need
+         */
+        private void add(long start, long end, int capacity) {
+            if(capacity > this.starts.length) {
+                this.grow(capacity);
+            }
+
+            this.starts[this.next] = start;
+            this.ends[this.next] = end;
+            this.next = (this.next + 1) % this.starts.length;
+            this.size = Math.min(this.size + 1, this.starts.length);
+        }
+
+        /**
+         * Makes room for more shocks, once the limits have been raised.
+         * @param capacity The new capacity
+         */
+        private void grow(int capacity) {
+            final long[] grownStarts = new long[capacity];
+            final long[] grownEnds = new long[capacity];
+            for(int i=0; i<this.size; i++) {
+                final int index = (this.next - this.size + i + this.starts.length) % this.starts.length;
+                grownStarts[i] = this.starts[index];
+                grownEnds[i] = this.ends[index];
+            }
+
+            this.starts = grownStarts;
+            this.ends = grownEnds;
+            this.next = this.size % capacity;
+        }
+
+        /**
+         * Gets the amount of shocks a ring has to keep for the given limits.
+         * A shock lasts one window at most, so every shock that still counts
+         * started within the last two windows, which hold twice the maximum
+         * amount of shocks at most.
+         * @param limits The limits
+         * @return The capacity of the ring
+         */
+        private static int capacity(ShockLimits limits) {
+            return 2 * limits.getMaxShocks();
+        }
+    }
+}
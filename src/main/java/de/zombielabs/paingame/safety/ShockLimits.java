@@ -0,0 +1,108 @@
+package de.zombielabs.paingame.safety;
+
+/**
+ * The ShockLimits class describes how much a single player may be shocked.
+ * Instances are immutable.
+ * @author steps
+ */
+public final class ShockLimits {
+
+    /**
+     * The limits used if nothing else has been configured.
+     */
+    public static final ShockLimits DEFAULT = new ShockLimits(10, 60000, 5000, 1000);
+
+    /**
+     * The maximum amount of shocks per window.
+     */
+    private final int maxShocks;
+
+    /**
+     * The length of the window, in milliseconds.
+     */
+    private final long window;
+
+    /**
+     * The maximum total amount of time a player may be shocked per window, in
+     * milliseconds.
+     */
+    private final long maxOnTime;
+
+    /**
+     * The minimum amount of time between the start of two shocks, in
+     * milliseconds.
+     */
+    private final long minGap;
+
+    /**
+     * Initializes a new instance of the ShockLimits class.
+     * @param maxShocks The maximum amount of shocks per window
+     * @param window The length of the window, in milliseconds
+     * @param maxOnTime The maximum total shock time per window, in milliseconds
+     * @param minGap The minimum time between two shocks, in milliseconds
+     * @throws IllegalArgumentException if any of the values is out of range
+     */
+    public ShockLimits(int maxShocks, long window, long maxOnTime, long minGap) {
+        if(maxShocks < 1) {
+            throw new IllegalArgumentException("Parameter 'maxShocks' must be at least 1");
+        }
+
+        if(window < 1) {
+            throw new IllegalArgumentException("Parameter 'window' must be at least 1");
+        }
+
+        if(maxOnTime < 1 || maxOnTime > window) {
+            throw new IllegalArgumentException("Parameter 'maxOnTime' must be between 1 and the window");
+        }
+
+        if(minGap < 0) {
+            throw new IllegalArgumentException("Parameter 'minGap' must not be negative");
+        }
+
+        this.maxShocks = maxShocks;
+        this.window = window;
+        this.maxOnTime = maxOnTime;
+        this.minGap = minGap;
+    }
+
+    /**
+     * Gets the maximum amount of shocks per window.
+     * @return The maximum amount of shocks
+     */
+    public int getMaxShocks() {
+        return maxShocks;
+    }
+
+    /**
+     * Gets the length of the window.
+     * @return The window, in milliseconds
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Gets the maximum total amount of time a player may be shocked per window.
+     * @return The maximum shock time, in milliseconds
+     */
+    public long getMaxOnTime() {
+        return maxOnTime;
+    }
+
+    /**
+     * Gets the minimum amount of time between the start of two shocks.
+     * @return The minimum gap, in milliseconds
+     */
+    public long getMinGap() {
+        return minGap;
+    }
+
+    /**
+     * Gets a String that represents these limits.
+     * @return A human readable description
+     */
+    @Override
+    public String toString() {
+        return maxShocks + " shocks and " + maxOnTime + " ms per " + window + " ms, at least " + minGap + " ms apart";
+    }
+}
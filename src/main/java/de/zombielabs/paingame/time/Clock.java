@@ -0,0 +1,47 @@
+package de.zombielabs.paingame.time;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Clock is where games, the board and everything else that needs to know
+ * the time or wait for it gets the time from.
+ *
+ * On the real board, this is the SystemClock. Simulations and tests use the
+ * VirtualClock, which does not wait at all but jumps straight to the next
+ * thing that is supposed to happen.
+ * @author steps
+ */
+public interface Clock {
+
+    /**
+     * Gets the current time, see System.nanoTime().
+     * @return The current time, in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Lets the calling thread wait for the given amount of time.
+     * @param millis The amount of time, in milliseconds
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Runs a task once the given amount of time has passed. The task must be
+     * short, it may hold up other tasks.
+     * @param task The task to run
+     * @param millis The amount of time to wait before, in milliseconds
+     */
+    void schedule(Runnable task, long millis);
+
+    /**
+     * Waits until the latch has counted down to zero, or the timeout passes.
+     * @param latch The latch to wait for
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return true if the latch reached zero, false if the timeout passed
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    boolean await(CountDownLatch latch, long timeout, TimeUnit unit) throws InterruptedException;
+}
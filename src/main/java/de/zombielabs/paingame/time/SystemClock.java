@@ -0,0 +1,120 @@
+package de.zombielabs.paingame.time;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * The SystemClock is the real time, as used on the real board. Scheduled tasks
+ * run on a single daemon thread. Scheduling does not allocate anything, unlike
+ * a ScheduledExecutorService, since pulses are scheduled in every round.
+ * @author steps
+ */
+public final class SystemClock implements Clock {
+
+    /**
+     * The log.
+     */
+    private static final Logger log = LogManager.getLogger(SystemClock.class);
+
+    /**
+     * The one and only SystemClock.
+     */
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    /**
+     * All scheduled tasks that have not run yet, also the lock guarding them.
+     */
+    private final TaskQueue tasks = new TaskQueue();
+
+    /**
+     * Initializes the SystemClock, use INSTANCE.
+     */
+    private SystemClock() {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runTasks();
+            }
+        }, "clock");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the current time.
+     * @return System.nanoTime()
+     */
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Lets the calling thread sleep.
+     * @param millis The amount of time, in milliseconds
+     * @throws InterruptedException If the thread was interrupted while sleeping
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    /**
+     * Runs a task on the clock's thread once the given amount of time has passed.
+     * @param task The task to run
+     * @param millis The amount of time to wait before, in milliseconds
+     */
+    @Override
+    public void schedule(Runnable task, long millis) {
+        synchronized(this.tasks) {
+            this.tasks.add(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), task);
+            this.tasks.notify();
+        }
+    }
+
+    /**
+     * Waits for the latch, see CountDownLatch.await(long, TimeUnit).
+     * @param latch The latch to wait for
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return true if the latch reached zero, false if the timeout passed
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    @Override
+    public boolean await(CountDownLatch latch, long timeout, TimeUnit unit) throws InterruptedException {
+        return latch.await(timeout, unit);
+    }
+
+    /**
+     * Runs every task once it is due, forever. Is run by the clock's thread,
+     * a failing task is logged and must not stop it, or no LED or shock would
+     * ever be switched off again.
+     */
+    private void runTasks() {
+        while(true) {
+            final Runnable next;
+            synchronized(this.tasks) {
+                try {
+                    while(this.tasks.isEmpty() || this.tasks.nextDue() - System.nanoTime() > 0) {
+                        if(this.tasks.isEmpty()) {
+                            this.tasks.wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(this.tasks, this.tasks.nextDue() - System.nanoTime());
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                next = this.tasks.poll();
+            }
+
+            try {
+                next.run();
+            } catch (Throwable ex) {
+                log.error("Scheduled task failed: " + ex.getMessage(), ex);
+            }
+        }
+    }
+}
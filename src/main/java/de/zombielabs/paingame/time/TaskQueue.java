@@ -0,0 +1,176 @@
+package de.zombielabs.paingame.time;
+
+import java.util.Arrays;
+
+/**
+ * The TaskQueue holds scheduled tasks ordered by their due time, tasks due at
+ * the same time in the order they were added.
+ *
+ * It is a binary heap kept in plain arrays, so adding and removing tasks does
+ * not allocate anything once the arrays are large enough. This keeps pulses,
+ * which are scheduled in every round of a game, free of garbage. Is not thread
+ * safe, the clocks synchronize on their own.
+ * @author steps
+ */
+final class TaskQueue {
+
+    /**
+     * The initial amount of tasks the queue can hold.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * When the tasks are due, in nanoseconds, as a heap.
+     */
+    private long[] due = new long[INITIAL_CAPACITY];
+
+    /**
+     * The order the tasks have been added in, to break ties.
+     */
+    private long[] order = new long[INITIAL_CAPACITY];
+
+    /**
+     * The tasks, in the same order as due.
+     */
+    private Runnable[] tasks = new Runnable[INITIAL_CAPACITY];
+
+    /**
+     * The amount of tasks in the queue.
+     */
+    private int size = 0;
+
+    /**
+     * The amount of tasks added so far.
+     */
+    private long added = 0;
+
+    /**
+     * Adds a task. Only allocates if the queue has to grow.
+     * @param dueAt When the task is due, in nanoseconds
+     * @param task The task
+     */
+    void add(long dueAt, Runnable task) {
+        if(this.size == this.tasks.length) {
+            this.due = Arrays.copyOf(this.due, this.size * 2);
+            this.order = Arrays.copyOf(this.order, this.size * 2);
+            this.tasks = Arrays.copyOf(this.tasks, this.size * 2);
+        }
+
+        // Sift up
+        final long position = this.added++;
+        int i = this.size++;
+        while(i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if(!this.before(dueAt, position, parent)) {
+                break;
+            }
+            this.move(parent, i);
+            i = parent;
+        }
+        this.set(i, dueAt, position, task);
+    }
+
+    /**
+     * Checks whether the queue is empty.
+     * @return true if there are no tasks
+     */
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the amount of tasks in the queue.
+     * @return The amount of tasks
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the due time of the next task. The queue must not be empty.
+     * @return When the next task is due, in nanoseconds
+     */
+    long nextDue() {
+        return this.due[0];
+    }
+
+    /**
+     * Removes the next task. The queue must not be empty.
+     * @return The task that was due first
+     */
+    Runnable poll() {
+        final Runnable next = this.tasks[0];
+        final int last = --this.size;
+        final long lastDue = this.due[last];
+        final long lastOrder = this.order[last];
+        final Runnable lastTask = this.tasks[last];
+        this.tasks[last] = null;
+
+        // Sift the last task down from the top
+        if(last > 0) {
+            int i = 0;
+            while(true) {
+                int child = 2 * i + 1;
+                if(child >= last) {
+                    break;
+                }
+                if(child + 1 < last && this.before(this.due[child + 1], this.order[child + 1], child)) {
+                    child++;
+                }
+                if(!this.before(this.due[child], this.order[child], lastDue, lastOrder)) {
+                    break;
+                }
+                this.move(child, i);
+                i = child;
+            }
+            this.set(i, lastDue, lastOrder, lastTask);
+        }
+
+        return next;
+    }
+
+    /**
+     * Checks whether a task goes before the task at the given index.
+     * @param dueAt When the task is due
+     * @param position The order the task has been added in
+     * @param index The index of the other task
+     * @return true if the task goes first
+     */
+    private boolean before(long dueAt, long position, int index) {
+        return this.before(dueAt, position, this.due[index], this.order[index]);
+    }
+
+    /**
+     * Checks whether a task goes before another one.
+     * @param dueAt When the task is due
+     * @param position The order the task has been added in
+     * @param otherDue When the other task is due
+     * @param otherPosition The order the other task has been added in
+     * @return true if the task goes first
+     */
+    private boolean before(long dueAt, long position, long otherDue, long otherPosition) {
+        return dueAt - otherDue < 0 || (dueAt == otherDue && position < otherPosition);
+    }
+
+    /**
+     * Moves a task to another index.
+     * @param from The index of the task
+     * @param to The index to move it to
+     */
+    private void move(int from, int to) {
+        this.set(to, this.due[from], this.order[from], this.tasks[from]);
+    }
+
+    /**
+     * Puts a task at the given index.
+     * @param index The index
+     * @param dueAt When the task is due
+     * @param position The order the task has been added in
+     * @param task The task
+     */
+    private void set(int index, long dueAt, long position, Runnable task) {
+        this.due[index] = dueAt;
+        this.order[index] = position;
+        this.tasks[index] = task;
+    }
+}
@@ -0,0 +1,165 @@
+package de.zombielabs.paingame.time;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The VirtualClock is a clock that only moves when somebody waits for it.
+ *
+ * Whoever sleeps makes the time jump straight to the end of the sleep, running
+ * all tasks scheduled up to then on the way, in order. Nothing ever really
+ * waits, so a whole game is played as fast as the CPU allows, and since
+ * everything happens in the same order every time, a game played with the
+ * same random numbers plays out exactly the same.
+ *
+ * Everything that is supposed to happen at a certain time, e.g. simulated
+ * buzzer presses, has to be scheduled on this clock. Tasks run on the thread
+ * that moves the time. The clock is meant to be moved by a single thread, the
+ * game's thread, at a time.
+ * @author steps
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * All scheduled tasks that have not run yet.
+     */
+    private final TaskQueue tasks = new TaskQueue();
+
+    /**
+     * The current time, in nanoseconds.
+     */
+    private long now;
+
+    /**
+     * Initializes a new instance of the VirtualClock class, starting at 0.
+     */
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Initializes a new instance of the VirtualClock class.
+     * @param start The time to start at, in nanoseconds
+     */
+    public VirtualClock(long start) {
+        this.now = start;
+    }
+
+    /**
+     * Gets the current virtual time.
+     * @return The current time, in nanoseconds
+     */
+    @Override
+    public synchronized long nanoTime() {
+        return this.now;
+    }
+
+    /**
+     * Moves the time forward by the given amount of time, running all tasks
+     * that are due on the way.
+     * @param millis The amount of time, in milliseconds
+     * @throws InterruptedException If the thread has been interrupted, before
+     * or by one of the tasks
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if(Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        this.advance(millis, TimeUnit.MILLISECONDS);
+
+        if(Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Schedules a task. It runs once somebody moves the time past its due time.
+     * @param task The task to run
+     * @param millis The amount of time to wait before, in milliseconds
+     */
+    @Override
+    public synchronized void schedule(Runnable task, long millis) {
+        this.tasks.add(this.now + TimeUnit.MILLISECONDS.toNanos(millis), task);
+    }
+
+    /**
+     * Moves the time forward until the latch has counted down to zero, running
+     * all tasks due on the way, but not beyond the timeout. If nothing that is
+     * scheduled counts the latch down, the time jumps straight to the timeout.
+     * @param latch The latch to wait for
+     * @param timeout How long to wait at most
+     * @param unit The unit of timeout
+     * @return true if the latch reached zero, false if the timeout passed
+     * @throws InterruptedException If the thread has been interrupted
+     */
+    @Override
+    public boolean await(CountDownLatch latch, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = this.nanoTime() + unit.toNanos(timeout);
+        while(latch.getCount() > 0) {
+            if(Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            if(!this.runNext(deadline)) {
+                this.moveTo(deadline);
+                return latch.getCount() == 0;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves the time forward, running all tasks that are due on the way.
+     * @param amount The amount of time
+     * @param unit The unit of amount
+     */
+    public void advance(long amount, TimeUnit unit) {
+        final long target = this.nanoTime() + unit.toNanos(amount);
+        while(this.runNext(target)) {
+            // Run everything due until then
+        }
+
+        this.moveTo(target);
+    }
+
+    /**
+     * Gets the amount of tasks that have been scheduled but not run yet.
+     * @return The amount of pending tasks
+     */
+    public synchronized int getPending() {
+        return this.tasks.size();
+    }
+
+    /**
+     * Runs the next task, if it is due by the given time. The time is moved to
+     * the task's due time first. The task runs outside the lock, so it may
+     * schedule further tasks.
+     * @param until The latest due time to run a task for
+     * @return true if a task was run, false if there is none due
+     */
+    private boolean runNext(long until) {
+        final Runnable next;
+        synchronized(this) {
+            if(this.tasks.isEmpty() || this.tasks.nextDue() > until) {
+                return false;
+            }
+
+            this.now = Math.max(this.now, this.tasks.nextDue());
+            next = this.tasks.poll();
+        }
+
+        next.run();
+        return true;
+    }
+
+    /**
+     * Moves the time to the given time, unless it is already later.
+     * @param target The time to move to, in nanoseconds
+     */
+    private synchronized void moveTo(long target) {
+        this.now = Math.max(this.now, target);
+    }
+}
@@ -1,5 +1,15 @@
 package de.zombielabs.paingame;
 
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -35,4 +45,104 @@ public class AppTest
     {
         assertTrue( true );
     }
+
+    /**
+     * A full game of Shocky takes more than 20 seconds on the real clock, but
+     * no time at all in virtual time. The winners' LEDs are still on once the
+     * game has ended, and switch off by themselves.
+     */
+    public void testShockyPlaysInVirtualTime() throws Exception
+    {
+        final VirtualClock clock = new VirtualClock();
+        final Result result = playShocky( clock, 1 );
+
+        assertEquals( 10, result.rounds );
+        assertTrue( clock.nanoTime() >= TimeUnit.SECONDS.toNanos( 20 ) );
+        assertTrue( result.millis < 5000 );
+        assertEquals( 0, result.expander.getShock() );
+        assertTrue( result.expander.getLED() != 0 );
+        assertTrue( result.expander.getTransitions() > 0 );
+
+        clock.advance( 2, TimeUnit.SECONDS );
+        assertEquals( 0, result.expander.getLED() );
+    }
+
+    /**
+     * The same seed plays the same game, down to every single pin transition.
+     */
+    public void testSameSeedPlaysTheSameGame() throws Exception
+    {
+        final VirtualClock firstClock = new VirtualClock();
+        final VirtualClock secondClock = new VirtualClock();
+        final Result first = playShocky( firstClock, 4711 );
+        final Result second = playShocky( secondClock, 4711 );
+
+        assertEquals( first.score, second.score );
+        assertEquals( first.expander.getWrites(), second.expander.getWrites() );
+        assertEquals( first.expander.getTransitions(), second.expander.getTransitions() );
+        assertEquals( firstClock.nanoTime(), secondClock.nanoTime() );
+    }
+
+    /**
+     * Plays a game of Shocky with the default configuration on a simulated
+     * board.
+     */
+    private Result playShocky( VirtualClock clock, long seed ) throws Exception
+    {
+        final List<Player> players = new PlayerFactory( clock ).create( ConfigurationLoader.parse( ConfigurationLoader.loadDefaults() ) );
+        final GameController controller = new GameController( players );
+        final Result result = new Result();
+        final Shocky game = new Shocky( 10, 2000, 10 );
+        game.setRandom( new GameRandom( seed ) );
+        game.addListener( new GameListener()
+        {
+            @Override
+            public void onGameEnded( Game game, HashMap<Player, Integer> score )
+            {
+            }
+
+            @Override
+            public void onRoundStarted( Game game, int current, int total )
+            {
+                result.rounds++;
+            }
+
+            @Override
+            public void onRoundEnded( Game game, int current, int total )
+            {
+            }
+        } );
+
+        final long start = System.nanoTime();
+        try
+        {
+            final HashMap<Player, Integer> score = controller.play( game ).get( 10, TimeUnit.SECONDS );
+            for( final Player player : players )
+            {
+                result.score.put( player.getSlot(), score.get( player ) );
+            }
+        }
+        finally
+        {
+            controller.shutdown();
+        }
+
+        result.millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        result.expander = (SimulatedExpander) players.get( 0 ).getBoard().getExpander();
+        return result;
+    }
+
+    /**
+     * What happened during a game.
+     */
+    private static class Result
+    {
+        private final HashMap<Integer, Integer> score = new HashMap<Integer, Integer>();
+
+        private int rounds;
+
+        private long millis;
+
+        private SimulatedExpander expander;
+    }
 }
@@ -0,0 +1,195 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.safety.ShockGovernor;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import junit.framework.TestCase;
+
+/**
+ * Tests how the GameController follows configuration changes and shows the
+ * winners, on a simulated board in virtual time.
+ */
+public class GameControllerTest extends TestCase {
+
+    /**
+     * Draws a few numbers from every stream and keeps them.
+     */
+    private static class DrawingGame extends Game {
+
+        private final List<Integer> draws = new ArrayList<Integer>();
+
+        DrawingGame() {
+            this.setGameName("Drawing");
+        }
+
+        @Override
+        public Boolean setup(Player[] players) {
+            this.setPlayers(players);
+            draws.clear();
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public Boolean teardown() {
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public HashMap<Player, Integer> loop() throws InterruptedException {
+            for(int i=0; i<10; i++) {
+                draws.add(this.getRandom().nextInt(1000));
+                for(final Player player : this.getPlayers()) {
+                    draws.add(this.getRandom().nextInt(player, 1000));
+                }
+            }
+            return new HashMap<Player, Integer>();
+        }
+    }
+
+    private Properties properties;
+
+    private final AtomicReference<Configuration> configuration = new AtomicReference<Configuration>();
+
+    private GameController controller;
+
+    @Override
+    protected void setUp() throws Exception {
+        properties = ConfigurationLoader.loadDefaults();
+        configuration.set(ConfigurationLoader.parse(properties));
+        controller = new GameController(new Supplier<Configuration>() {
+            @Override
+            public Configuration get() {
+                return configuration.get();
+            }
+        }, new PlayerFactory(new VirtualClock()));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        controller.shutdown();
+    }
+
+    public void testPlayersAreKeptIfOnlyParametersChange() {
+        final List<Player> before = controller.getPlayers();
+
+        properties.setProperty("shocky.rounds", "3");
+        properties.setProperty("shock.maxShocks", "2");
+        reload();
+
+        assertSame(before, controller.getPlayers());
+        assertEquals(2, controller.getShockGovernor().getLimits().getMaxShocks());
+    }
+
+    public void testPlayersAreSetUpAgainIfTheirPinsChange() {
+        final List<Player> before = controller.getPlayers();
+
+        properties.setProperty("player.1.led", "13");
+        reload();
+
+        assertNotSame(before, controller.getPlayers());
+        assertEquals(before.size(), controller.getPlayers().size());
+    }
+
+    public void testCalibratedOffsetsSurvivePlayersBeingSetUpAgain() {
+        controller.getPlayers().get(0).setBuzzerOffset(1234000);
+        controller.getPlayers().get(1).setBuzzerOffset(1234000);
+        controller.getPlayers().get(2).setBuzzerOffset(1234000);
+
+        properties.setProperty("player.4.led", "13");
+        properties.setProperty("player.2.buzzer", "14");
+        properties.setProperty("player.3.buzzerOffset", "10");
+        reload();
+
+        // Kept, unless the buzzer or its configured offset have changed
+        assertEquals(1234000, controller.getPlayers().get(0).getBuzzerOffset());
+        assertEquals(0, controller.getPlayers().get(1).getBuzzerOffset());
+        assertEquals(10000, controller.getPlayers().get(2).getBuzzerOffset());
+    }
+
+    public void testShockBudgetSurvivesPlayersBeingSetUpAgain() {
+        properties.setProperty("shock.maxShocks", "1");
+        reload();
+        final ShockGovernor governor = controller.getShockGovernor();
+        assertEquals(ShockGovernor.Verdict.GRANTED, governor.request(controller.getPlayers().get(0), 100));
+
+        properties.setProperty("player.1.led", "13");
+        properties.setProperty("shock.minGap", "0");
+        reload();
+
+        final Player again = controller.getPlayers().get(0);
+        assertEquals(ShockGovernor.Verdict.TOO_MANY, governor.request(again, 100));
+        assertEquals(1, governor.getCount(again, ShockGovernor.Verdict.TOO_MANY));
+        assertEquals(ShockGovernor.Verdict.GRANTED, governor.request(controller.getPlayers().get(1), 100));
+    }
+
+    public void testWinnersLEDsCanBeAwaited() throws Exception {
+        controller.play(new Shocky(2, 100, 1)).get(10, TimeUnit.SECONDS);
+        final PlayerBoard board = controller.getPlayers().get(0).getBoard();
+        final long ended = board.getClock().nanoTime();
+        assertTrue(board.getLED() != 0);
+
+        controller.awaitOutputs();
+        assertEquals(0, board.getLED());
+        assertEquals(TimeUnit.SECONDS.toNanos(2), board.getClock().nanoTime() - ended);
+
+        // Nothing left to wait for
+        controller.awaitOutputs();
+        assertEquals(TimeUnit.SECONDS.toNanos(2), board.getClock().nanoTime() - ended);
+    }
+
+    public void testGamesCanBePlayedOnTheCallingThread() throws Exception {
+        final GameController inline = new GameController(controller.getPlayers(), new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        });
+
+        final CompletableFuture<HashMap<Player, Integer>> score = inline.play(new Shocky(2, 100, 1));
+        assertTrue("The game must be over once play returns", score.isDone());
+        assertEquals(controller.getPlayers().size(), score.get().size());
+        inline.shutdown();
+    }
+
+    public void testAGamePlayedTwiceCanBeReplayedFromTheLoggedSeed() throws Exception {
+        final DrawingGame game = new DrawingGame();
+        controller.play(game).get(10, TimeUnit.SECONDS);
+        final long firstSeed = game.getRandom().getSeed();
+        controller.play(game).get(10, TimeUnit.SECONDS);
+        final long secondSeed = game.getRandom().getSeed();
+        final List<Integer> second = new ArrayList<Integer>(game.draws);
+        assertTrue("Every run must be played with a new seed", firstSeed != secondSeed);
+
+        final DrawingGame replay = new DrawingGame();
+        replay.setRandom(new GameRandom(secondSeed));
+        controller.play(replay).get(10, TimeUnit.SECONDS);
+        assertEquals(second, replay.draws);
+
+        // A pinned seed starts over for every run
+        controller.play(replay).get(10, TimeUnit.SECONDS);
+        assertEquals(second, replay.draws);
+        assertEquals(secondSeed, replay.getRandom().getSeed());
+    }
+
+    /**
+     * Swaps in a new configuration from the properties, as a reload would.
+     */
+    private void reload() {
+        configuration.set(ConfigurationLoader.parse(properties));
+        controller.applyConfiguration();
+    }
+}
@@ -0,0 +1,151 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.log.EventLog;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import junit.framework.TestCase;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Tests the GameQueue with games of Shocky on a simulated board in virtual
+ * time.
+ */
+public class GameQueueTest extends TestCase {
+
+    private GameController controller;
+
+    private final List<Game> created = new CopyOnWriteArrayList<Game>();
+
+    private final AtomicInteger setUp = new AtomicInteger();
+
+    private final AtomicInteger tornDown = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws Exception {
+        final VirtualClock clock = new VirtualClock();
+        controller = new GameController(new PlayerFactory(clock).create(ConfigurationLoader.parse(ConfigurationLoader.loadDefaults())));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        controller.shutdown();
+    }
+
+    public void testGamesArePreparedAndPlayedBackToBack() throws Exception {
+        final GameQueue queue = new GameQueue(controller, games());
+        queue.play(5).get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, queue.getStarted());
+        assertTrue(queue.getLastLatency() >= 0);
+        assertTrue(queue.getMaxLatency() >= queue.getLastLatency());
+
+        // Every game played for real has been played in a dry run before, with its own governor
+        final Set<Long> played = new HashSet<Long>();
+        final Set<Long> dryRuns = new HashSet<Long>();
+        for(final Game game : created) {
+            if(game.getShockGovernor() == controller.getShockGovernor()) {
+                played.add(game.getRandom().getSeed());
+            } else {
+                dryRuns.add(game.getRandom().getSeed());
+            }
+        }
+        assertEquals(5, played.size());
+        assertEquals(played, dryRuns);
+        assertEquals(setUp.get(), tornDown.get());
+    }
+
+    public void testDryRunsAreNotLogged() throws Exception {
+        final Logger logger = LogManager.getLogger(Shocky.class);
+        final List<String> magicNumbers = new CopyOnWriteArrayList<String>();
+        final AppenderSkeleton recorder = new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent event) {
+                if(event.getRenderedMessage().startsWith("Magic number")) {
+                    magicNumbers.add(event.getRenderedMessage());
+                }
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        // Whatever earlier tests have logged is written before listening in
+        assertTrue(EventLog.INSTANCE.flush(5, TimeUnit.SECONDS));
+        logger.addAppender(recorder);
+        try {
+            final GameQueue queue = new GameQueue(controller, games());
+            queue.play(3).get(10, TimeUnit.SECONDS);
+            assertTrue(EventLog.INSTANCE.flush(5, TimeUnit.SECONDS));
+        } finally {
+            logger.removeAppender(recorder);
+        }
+
+        // Once per game played for real, the dry runs would give the numbers away
+        assertEquals(magicNumbers.toString(), 3, magicNumbers.size());
+    }
+
+    public void testStoppingTearsDownThePreparedGame() throws Exception {
+        final GameQueue queue = new GameQueue(controller, games());
+        final CompletableFuture<Void> done = queue.play(0);
+        queue.stop();
+        done.get(10, TimeUnit.SECONDS);
+
+        assertTrue(setUp.get() > 0);
+        assertEquals(setUp.get(), tornDown.get());
+    }
+
+    public void testPlayersAreValidated() throws Exception {
+        final GameController empty = new GameController(new ArrayList<Player>());
+        try {
+            new GameQueue(empty, games()).play(1).get(10, TimeUnit.SECONDS);
+            fail("Nobody can not play");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        } finally {
+            empty.shutdown();
+        }
+    }
+
+    /**
+     * Creates games of Shocky that count their setups and teardowns.
+     */
+    private Supplier<Game> games() {
+        return () -> {
+            final Game game = new Shocky(3, 2000, 10) {
+                @Override
+                public Boolean setup(Player[] players) {
+                    setUp.incrementAndGet();
+                    return super.setup(players);
+                }
+
+                @Override
+                public Boolean teardown() {
+                    tornDown.incrementAndGet();
+                    return super.teardown();
+                }
+            };
+            created.add(game);
+            return game;
+        };
+    }
+}
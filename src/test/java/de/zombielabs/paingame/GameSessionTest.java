@@ -0,0 +1,227 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Tests cancellation, deadlines and teardown of a GameSession, with a game
+ * that plays on the real clock.
+ */
+public class GameSessionTest extends TestCase {
+
+    private PlayerBoard board;
+
+    private Player[] players;
+
+    private ExecutorService executor;
+
+    /**
+     * Plays rounds of 20 ms and counts what happens to it.
+     */
+    private static class CountingGame extends Game {
+
+        private final int rounds;
+
+        private final AtomicInteger setUp = new AtomicInteger();
+
+        private final AtomicInteger tornDown = new AtomicInteger();
+
+        private final AtomicInteger played = new AtomicInteger();
+
+        private final CountDownLatch firstRound = new CountDownLatch(1);
+
+        private final CountDownLatch teardown = new CountDownLatch(1);
+
+        CountingGame(int rounds) {
+            this.rounds = rounds;
+            this.setGameName("Counting");
+        }
+
+        @Override
+        public Boolean setup(Player[] players) {
+            this.setPlayers(players);
+            setUp.incrementAndGet();
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public Boolean teardown() {
+            tornDown.incrementAndGet();
+            teardown.countDown();
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public HashMap<Player, Integer> loop() throws InterruptedException {
+            for(int round=1; round<=rounds && !this.isCancelled(); round++) {
+                this.raiseOnRoundStarted(round, rounds);
+                firstRound.countDown();
+                this.getClock().sleep(20);
+                played.incrementAndGet();
+                this.raiseOnRoundEnded(round, rounds);
+            }
+            return new HashMap<Player, Integer>();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        board = new PlayerBoard(new SimulatedExpander(2));
+        players = new Player[] { new Player("Alice", 0, board), new Player("Bob", 1, board) };
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        board.shutdown();
+    }
+
+    public void testCancelMidRoundStopsTheGame() throws Exception {
+        final CountingGame game = new CountingGame(500);
+        final GameSession session = new GameSession(game, players, executor);
+        session.start();
+
+        assertTrue(game.firstRound.await(5, TimeUnit.SECONDS));
+        assertTrue(session.cancel());
+        try {
+            session.start().get(5, TimeUnit.SECONDS);
+            fail("The session has been cancelled");
+        } catch (CancellationException ex) {
+            // Expected
+        }
+
+        assertTornDownOnce(game);
+        assertTrue(game.played.get() < 500);
+    }
+
+    public void testDeadlineStopsTheGame() throws Exception {
+        final CountingGame game = new CountingGame(500);
+        final GameSession session = new GameSession(game, players, executor);
+        try {
+            session.start(100, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+            fail("The deadline has passed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+
+        assertTornDownOnce(game);
+        assertTrue(game.played.get() < 500);
+    }
+
+    public void testGameThatFinishesIsTornDownOnce() throws Exception {
+        final CountingGame game = new CountingGame(2);
+        new GameSession(game, players, executor).start(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, game.played.get());
+        assertTornDownOnce(game);
+    }
+
+    public void testErrorCompletesTheResult() throws Exception {
+        final CountingGame game = new CountingGame(1) {
+            @Override
+            public HashMap<Player, Integer> loop() throws InterruptedException {
+                throw new UnsatisfiedLinkError("no pi4j in java.library.path");
+            }
+        };
+
+        try {
+            new GameSession(game, players, executor).start().get(5, TimeUnit.SECONDS);
+            fail("The game has failed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof UnsatisfiedLinkError);
+        }
+
+        assertTornDownOnce(game);
+    }
+
+    public void testCancelledBeforeStartTearsDownThePreparedGame() throws Exception {
+        final CountingGame game = new CountingGame(1);
+        final GameSession session = new GameSession(game, players, executor);
+        assertTrue(session.prepare());
+        session.cancel();
+        assertTrue(session.start().isCancelled() || session.start().isCompletedExceptionally());
+
+        assertTornDownOnce(game);
+        assertEquals(0, game.played.get());
+    }
+
+    public void testFailedSessionTearsDownThePreparedNext() throws Exception {
+        final CountingGame first = new CountingGame(1) {
+            @Override
+            public HashMap<Player, Integer> loop() throws InterruptedException {
+                throw new IllegalStateException("Broken");
+            }
+        };
+        final CountingGame second = new CountingGame(1);
+        final GameSession next = new GameSession(second, players, executor);
+        assertTrue(next.prepare());
+
+        try {
+            new GameSession(first, players, executor).then(next).get(5, TimeUnit.SECONDS);
+            fail("The first game has failed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        assertTornDownOnce(second);
+        assertEquals(0, second.played.get());
+        assertTrue(next.start().isCompletedExceptionally());
+    }
+
+    public void testCancellingTheChainCancelsTheRunningSession() throws Exception {
+        final CountingGame first = new CountingGame(500);
+        final CountingGame second = new CountingGame(1);
+        final CompletableFuture<HashMap<Player, Integer>> chained = new GameSession(first, players, executor).then(new GameSession(second, players, executor));
+
+        assertTrue(first.firstRound.await(5, TimeUnit.SECONDS));
+        assertTrue(chained.cancel(true));
+
+        assertTornDownOnce(first);
+        assertTrue(first.played.get() < 500);
+        assertEquals(0, second.setUp.get());
+    }
+
+    public void testCancellingPlayAllCancelsTheRunningGame() throws Exception {
+        final GameController controller = new GameController(Arrays.asList(players), executor);
+        final CountingGame first = new CountingGame(500);
+        final CountingGame second = new CountingGame(1);
+        final CompletableFuture<HashMap<Player, Integer>> all = controller.playAll(Arrays.<Game>asList(first, second));
+
+        assertTrue(first.firstRound.await(5, TimeUnit.SECONDS));
+        assertTrue(all.cancel(true));
+
+        assertTornDownOnce(first);
+        assertTrue(first.played.get() < 500);
+        assertEquals(0, second.setUp.get());
+    }
+
+    /**
+     * Waits for the teardown, gives a second one the chance to happen and
+     * makes sure it did not.
+     */
+    private void assertTornDownOnce(CountingGame game) throws Exception {
+        assertTrue(game.teardown.await(5, TimeUnit.SECONDS));
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, game.setUp.get());
+        assertEquals(1, game.tornDown.get());
+    }
+}
@@ -0,0 +1,137 @@
+package de.zombielabs.paingame;
+
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.games.Game;
+import de.zombielabs.paingame.games.GameListener;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * Makes sure a round, all the way through Game, Shocky, the GameController,
+ * the board and the clock, does not allocate anything once warmed up. Uses the
+ * JVM's per-thread allocation counter on the game's thread.
+ *
+ * While the JVM warms up, it allocates a few bytes on the thread now and then,
+ * e.g. when it resolves a class for a method the JIT has deoptimized, each of
+ * them only once. So games are played until one gets through without a single
+ * allocating round, garbage of the game itself would show up in every one of
+ * them. Only two rounds of a game are left out: the first round creates every
+ * player's random stream as it draws for them the first time, and the last
+ * round ends the game and hands out the score.
+ */
+public class RoundAllocationTest extends TestCase {
+
+    private static final int ROUNDS = 400;
+
+    private static final int MAX_GAMES = 30;
+
+    private Level level;
+
+    @Override
+    protected void setUp() throws Exception {
+        final Logger root = LogManager.getRootLogger();
+        level = root.getLevel();
+        root.setLevel(Level.ERROR);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        LogManager.getRootLogger().setLevel(level);
+    }
+
+    public void testRoundsDoNotAllocate() throws Exception {
+        assertRoundsDoNotAllocate(new PlayerFactory(new VirtualClock()).create(ConfigurationLoader.parse(ConfigurationLoader.loadDefaults())));
+    }
+
+    public void testRoundsDoNotAllocateWhileLogging() throws Exception {
+        // Routine events go to the EventLog, its thread builds the messages
+        LogManager.getRootLogger().setLevel(Level.DEBUG);
+        assertRoundsDoNotAllocate(new PlayerFactory(new VirtualClock()).create(ConfigurationLoader.parse(ConfigurationLoader.loadDefaults())));
+    }
+
+    public void testRoundsWithAllPlayersDoNotAllocate() throws Exception {
+        final VirtualClock clock = new VirtualClock();
+        final PlayerBoard board = new PlayerBoard(new SimulatedExpander(PlayerBoard.MAX_PLAYERS, clock), clock);
+        final List<Player> players = new ArrayList<Player>();
+        for(int slot=0; slot<PlayerBoard.MAX_PLAYERS; slot++) {
+            players.add(new Player("Player " + (slot + 1), slot, board));
+        }
+
+        assertRoundsDoNotAllocate(players);
+    }
+
+    private void assertRoundsDoNotAllocate(List<Player> players) throws Exception {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        final GameController controller = new GameController(players);
+        try {
+            String allocating = null;
+            for(int i=0; i<MAX_GAMES; i++) {
+                allocating = this.playAndFindAllocatingRounds(controller, threads);
+                if(allocating.isEmpty()) {
+                    return;
+                }
+            }
+            fail("Still allocating after " + MAX_GAMES + " games:" + allocating);
+        } finally {
+            controller.shutdown();
+        }
+    }
+
+    /**
+     * Plays a game and lists the rounds that allocated, leaving out the first
+     * and the last round.
+     * @return The allocating rounds, empty if there were none
+     */
+    private String playAndFindAllocatingRounds(GameController controller, final com.sun.management.ThreadMXBean threads) throws Exception {
+        final Shocky game = new Shocky(ROUNDS, 2000, 10);
+        game.setRandom(new GameRandom(4711));
+
+        // Allocated bytes at the start of every round, and what reading the counter costs
+        final long[] allocated = new long[ROUNDS + 1];
+        final long[] overhead = new long[1];
+        game.addListener(new GameListener() {
+            @Override
+            public void onGameEnded(Game game, HashMap<Player, Integer> score) {
+                allocated[ROUNDS] = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+
+            @Override
+            public void onRoundStarted(Game game, int current, int total) {
+                final long id = Thread.currentThread().getId();
+                final long before = threads.getThreadAllocatedBytes(id);
+                allocated[current - 1] = threads.getThreadAllocatedBytes(id);
+                overhead[0] = Math.max(overhead[0], allocated[current - 1] - before);
+            }
+
+            @Override
+            public void onRoundEnded(Game game, int current, int total) {
+            }
+        });
+        controller.play(game).get(30, TimeUnit.SECONDS);
+
+        // Rounds are counted from 1
+        final StringBuilder allocating = new StringBuilder();
+        for(int round=1; round<ROUNDS - 1; round++) {
+            final long bytes = allocated[round + 1] - allocated[round] - overhead[0];
+            if(bytes > 0) {
+                allocating.append(" round ").append(round + 1).append(": ").append(bytes).append(" bytes");
+            }
+        }
+        return allocating.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package de.zombielabs.paingame.batch;
+
+import de.zombielabs.paingame.config.Configuration;
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.games.GameMode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests the BatchRunner and both formats of its results.
+ */
+public class BatchRunnerTest extends TestCase {
+
+    private static final int GAMES = 20;
+
+    private Configuration configuration;
+
+    /**
+     * Keeps all results.
+     */
+    private static final class Collector implements ResultWriter {
+
+        private final List<GameResult> results = new ArrayList<GameResult>();
+
+        @Override
+        public void begin(GameMode mode, long seed, List<String> players) {
+        }
+
+        @Override
+        public void write(GameResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        configuration = ConfigurationLoader.parse(ConfigurationLoader.loadDefaults());
+    }
+
+    public void testParallelBatchPlaysTheSameGames() throws Exception {
+        final Collector sequential = new Collector();
+        new BatchRunner(configuration, GameMode.SHOCKY).setSeed(42).run(GAMES, sequential);
+
+        final Collector parallel = new Collector();
+        new BatchRunner(configuration, GameMode.SHOCKY).setSeed(42).setParallelism(4).run(GAMES, parallel);
+
+        assertEquals(GAMES, sequential.results.size());
+        assertEquals(GAMES, parallel.results.size());
+        for(int i=0; i<GAMES; i++) {
+            final GameResult a = sequential.results.get(i);
+            final GameResult b = parallel.results.get(i);
+            assertEquals(i, a.getGame());
+            assertEquals(i, b.getGame());
+            assertEquals(a.getSeed(), b.getSeed());
+            assertEquals(a.getRounds(), b.getRounds());
+            assertEquals(a.getVirtualTime(), b.getVirtualTime());
+            assertEquals(a.getWinners(), b.getWinners());
+            assertEquals(a.getWrites(), b.getWrites());
+            assertEquals(a.getTransitions(), b.getTransitions());
+            assertEquals(a.getGranted(), b.getGranted());
+            assertEquals(a.getDenied(), b.getDenied());
+            for(int slot=0; slot<a.getPlayers(); slot++) {
+                assertEquals(a.getScore(slot), b.getScore(slot));
+            }
+
+            assertEquals(10, a.getRounds());
+            assertTrue(a.getWinners() != 0);
+            assertTrue(a.getWallTime() >= a.getSlowestRound());
+        }
+    }
+
+    public void testGamesCanBePlayedAgainFromTheirSeed() throws Exception {
+        final Collector batch = new Collector();
+        new BatchRunner(configuration, GameMode.SHOCKY).setSeed(7).run(5, batch);
+
+        final GameResult fourth = batch.results.get(3);
+        final GameResult again = new BatchRunner(configuration, GameMode.SHOCKY).play(3, fourth.getSeed());
+        assertEquals(fourth.getWinners(), again.getWinners());
+        assertEquals(fourth.getTransitions(), again.getTransitions());
+    }
+
+    public void testCsvHasAHeaderAndALinePerGame() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CsvResultWriter writer = new CsvResultWriter(bytes);
+        new BatchRunner(configuration, GameMode.SHOCKY).setParallelism(2).run(GAMES, writer);
+        writer.close();
+
+        final String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(GAMES + 1, lines.length);
+        assertTrue(lines[0].startsWith("game,seed,"));
+        assertTrue(lines[0].endsWith(",Player 3,Player 4"));
+        for(int i=1; i<lines.length; i++) {
+            assertTrue(lines[i].startsWith((i - 1) + ","));
+            assertEquals(lines[0].split(",").length, lines[i].split(",").length);
+        }
+    }
+
+    public void testBinaryRecordsHaveAFixedSize() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BinaryResultWriter writer = new BinaryResultWriter(bytes);
+        final Collector results = new Collector();
+        new BatchRunner(configuration, GameMode.SHOCKY).setSeed(3).run(GAMES, new ResultWriter() {
+            @Override
+            public void begin(GameMode mode, long seed, List<String> players) throws IOException {
+                writer.begin(mode, seed, players);
+            }
+
+            @Override
+            public void write(GameResult result) throws IOException {
+                writer.write(result);
+                results.write(result);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        writer.close();
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(BinaryResultWriter.MAGIC, in.readInt());
+        assertEquals("SHOCKY", in.readUTF());
+        assertEquals(3, in.readLong());
+        final int players = in.readInt();
+        assertEquals(4, players);
+        for(int slot=0; slot<players; slot++) {
+            in.readUTF();
+        }
+        assertEquals(GAMES * BinaryResultWriter.recordSize(players), in.available());
+
+        in.skipBytes(BinaryResultWriter.recordSize(players) * (GAMES - 1));
+        final GameResult last = results.results.get(GAMES - 1);
+        assertEquals(GAMES - 1, in.readInt());
+        assertEquals(last.getSeed(), in.readLong());
+        assertEquals(last.getRounds(), in.readInt());
+        assertEquals(last.getVirtualTime(), in.readLong());
+        assertEquals(last.getWallTime(), in.readLong());
+        assertEquals(last.getSlowestRound(), in.readLong());
+        assertEquals(last.getWrites(), in.readLong());
+        assertEquals(last.getTransitions(), in.readLong());
+        assertEquals(last.getGranted(), in.readLong());
+        assertEquals(last.getDenied(), in.readLong());
+        assertEquals(last.getWinners(), in.readLong());
+        for(int slot=0; slot<players; slot++) {
+            assertEquals(last.getScore(slot), in.readInt());
+        }
+        assertEquals(0, in.available());
+    }
+}
@@ -0,0 +1,178 @@
+package de.zombielabs.paingame.config;
+
+import de.zombielabs.paingame.games.GameMode;
+import de.zombielabs.paingame.games.Shocky;
+import de.zombielabs.paingame.safety.ShockLimits;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import junit.framework.TestCase;
+
+/**
+ * Tests parsing and validation of configurations.
+ */
+public class ConfigurationLoaderTest extends TestCase {
+
+    private Properties properties;
+
+    @Override
+    protected void setUp() throws Exception {
+        properties = new Properties();
+        properties.setProperty("expander.1.address", "0x20");
+        properties.setProperty("player.1.name", "Alice");
+        properties.setProperty("player.1.shock", "1");
+        properties.setProperty("player.1.led", "5");
+        properties.setProperty("player.1.buzzer", "9");
+        properties.setProperty("player.2.name", " Bob ");
+        properties.setProperty("player.2.shock", "1:A0");
+        properties.setProperty("player.2.led", "1:A7");
+        properties.setProperty("player.2.buzzer", "1:B0");
+        properties.setProperty("player.2.buzzerOffset", "1500");
+    }
+
+    public void testDefaultsAreValid() throws Exception {
+        final Configuration configuration = ConfigurationLoader.parse(ConfigurationLoader.loadDefaults());
+        assertEquals(4, configuration.getPlayers().size());
+        assertEquals("Player 1", configuration.getPlayers().get(0).getName());
+        assertTrue(configuration.getExpanders().isEmpty());
+        assertTrue(configuration.createGame(GameMode.SHOCKY) instanceof Shocky);
+    }
+
+    public void testPlayersAndPins() {
+        final Configuration configuration = ConfigurationLoader.parse(properties);
+        assertEquals(1, configuration.getExpanders().size());
+        assertEquals(0x20, configuration.getExpanders().get(0).intValue());
+        assertEquals(2, configuration.getPlayers().size());
+
+        final PlayerConfiguration alice = configuration.getPlayers().get(0);
+        assertEquals("Alice", alice.getName());
+        assertEquals(new PinAddress(PinAddress.RASPI, 1), alice.getShockPin());
+        assertEquals(0, alice.getBuzzerOffset());
+
+        final PlayerConfiguration bob = configuration.getPlayers().get(1);
+        assertEquals("Bob", bob.getName());
+        assertEquals(new PinAddress(1, 0), bob.getShockPin());
+        assertEquals(new PinAddress(1, 7), bob.getLEDPin());
+        assertEquals(new PinAddress(1, 8), bob.getBuzzerPin());
+        assertEquals(1500, bob.getBuzzerOffset());
+    }
+
+    public void testPlayersEndAtTheFirstGap() {
+        properties.setProperty("player.4.name", "Nobody");
+        assertEquals(2, ConfigurationLoader.parse(properties).getPlayers().size());
+    }
+
+    public void testShockLimits() {
+        properties.setProperty("shock.maxShocks", "3");
+        final ShockLimits limits = ConfigurationLoader.parse(properties).getShockLimits();
+        assertEquals(3, limits.getMaxShocks());
+        assertEquals(ShockLimits.DEFAULT.getWindow(), limits.getWindow());
+    }
+
+    public void testNoPlayers() {
+        assertInvalid(new Properties(), "At least one player");
+    }
+
+    public void testEmptyName() {
+        properties.setProperty("player.2.name", " ");
+        assertInvalid(properties, "Name of player 2");
+    }
+
+    public void testMissingPin() {
+        properties.remove("player.1.led");
+        assertInvalid(properties, "player.1.led is missing");
+    }
+
+    public void testMalformedPin() {
+        properties.setProperty("player.1.led", "GPIO_05");
+        assertInvalid(properties, "player.1.led");
+    }
+
+    public void testPiPinOutOfRange() {
+        properties.setProperty("player.1.led", "21");
+        assertInvalid(properties, "player.1.led must be between 0 and 20");
+        properties.setProperty("player.1.led", "-1");
+        assertInvalid(properties, "player.1.led must be between 0 and 20");
+    }
+
+    public void testPortPinOutOfRange() {
+        properties.setProperty("player.2.led", "1:A9");
+        assertInvalid(properties, "player.2.led");
+    }
+
+    public void testExpanderPinOutOfRange() {
+        properties.setProperty("player.2.led", "1:16");
+        assertInvalid(properties, "player.2.led: expanders only have pins 0 to 15");
+    }
+
+    public void testUnknownExpander() {
+        properties.setProperty("player.2.led", "2:A1");
+        assertInvalid(properties, "expander 2 is not configured");
+    }
+
+    public void testMalformedExpanderAddress() {
+        properties.setProperty("expander.1.address", "twenty");
+        assertInvalid(properties, "expander.1.address");
+    }
+
+    public void testPinUsedTwice() {
+        properties.setProperty("player.2.buzzer", "1:A0");
+        assertInvalid(properties, "player.2.buzzer: pin 1:0 is used more than once");
+        properties.setProperty("player.2.buzzer", "1:0");
+        assertInvalid(properties, "player.2.buzzer: pin 1:0 is used more than once");
+    }
+
+    public void testMalformedOffset() {
+        properties.setProperty("player.2.buzzerOffset", "1.5ms");
+        assertInvalid(properties, "player.2.buzzerOffset");
+    }
+
+    public void testGameParameters() {
+        properties.setProperty("shocky.rounds", "0");
+        assertInvalid(properties, "shocky.rounds");
+        properties.setProperty("shocky.rounds", "ten");
+        assertInvalid(properties, "Invalid game parameter");
+        properties.remove("shocky.rounds");
+
+        properties.setProperty("shocky.pause", "-1");
+        assertInvalid(properties, "shocky.pause");
+        properties.remove("shocky.pause");
+
+        properties.setProperty("shocky.probability", "0");
+        assertInvalid(properties, "shocky.probability");
+    }
+
+    public void testLoadFile() throws Exception {
+        final File file = File.createTempFile("paingame", ".properties");
+        try {
+            final OutputStream out = new FileOutputStream(file);
+            try {
+                properties.store(out, null);
+            } finally {
+                out.close();
+            }
+
+            assertEquals("Bob", ConfigurationLoader.load(file).getPlayers().get(1).getName());
+        } finally {
+            file.delete();
+        }
+
+        try {
+            ConfigurationLoader.load(file);
+            fail(file + " is gone");
+        } catch (FileNotFoundException ex) {
+            // Expected
+        }
+    }
+
+    private static void assertInvalid(Properties properties, String message) {
+        try {
+            ConfigurationLoader.parse(properties);
+            fail("Expected: " + message);
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(message));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package de.zombielabs.paingame.config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the ConfigurationWatcher picks up changes, but only valid ones,
+ * only real ones and only once the file is quiet.
+ */
+public class ConfigurationWatcherTest extends TestCase {
+
+    private static final long QUIET_PERIOD = 1000;
+
+    private File directory;
+
+    private File file;
+
+    private Properties properties;
+
+    private ConfigurationWatcher watcher;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("paingame").toFile();
+        file = new File(directory, "paingame.properties");
+        properties = ConfigurationLoader.loadDefaults();
+        write(properties);
+        watcher = new ConfigurationWatcher(file, QUIET_PERIOD);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        watcher.stop();
+        for(final File child : directory.listFiles()) {
+            child.delete();
+        }
+        directory.delete();
+    }
+
+    public void testLoadsTheFile() {
+        assertEquals("Player 1", watcher.getConfiguration().getPlayers().get(0).getName());
+    }
+
+    public void testReloadSwapsInChanges() throws Exception {
+        final Configuration before = watcher.getConfiguration();
+        properties.setProperty("shocky.rounds", "3");
+        write(properties);
+        watcher.reload();
+
+        assertNotSame(before, watcher.getConfiguration());
+        assertEquals(3, watcher.getConfiguration().getInt("shocky.rounds", 10));
+        assertTrue(before.hasSamePlayers(watcher.getConfiguration()));
+    }
+
+    public void testReloadIgnoresTheSameConfiguration() throws Exception {
+        final Configuration before = watcher.getConfiguration();
+        write(properties);
+        watcher.reload();
+
+        assertSame(before, watcher.getConfiguration());
+    }
+
+    public void testReloadKeepsTheLastGoodConfiguration() throws Exception {
+        final Configuration before = watcher.getConfiguration();
+        properties.setProperty("player.2.led", "1:A9");
+        write(properties);
+        watcher.reload();
+        assertSame(before, watcher.getConfiguration());
+
+        file.delete();
+        watcher.reload();
+        assertSame(before, watcher.getConfiguration());
+    }
+
+    public void testChangesArePickedUpOnceTheFileIsQuiet() throws Exception {
+        final Configuration before = watcher.getConfiguration();
+        watcher.start();
+
+        // An editor saving bit by bit, every step well within the quiet period
+        final long start = System.nanoTime();
+        for(int rounds=1; rounds<=5; rounds++) {
+            properties.setProperty("shocky.rounds", String.valueOf(rounds));
+            write(properties);
+            Thread.sleep(50);
+            if(System.nanoTime() - start < QUIET_PERIOD * 1000000) {
+                assertSame(before, watcher.getConfiguration());
+            }
+        }
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while(watcher.getConfiguration() == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(5, watcher.getConfiguration().getInt("shocky.rounds", 10));
+    }
+
+    public void testPlayerChanges() throws Exception {
+        final Configuration before = watcher.getConfiguration();
+        properties.setProperty("player.1.led", "13");
+        write(properties);
+        watcher.reload();
+
+        assertFalse(before.hasSamePlayers(watcher.getConfiguration()));
+        assertFalse(before.equals(watcher.getConfiguration()));
+    }
+
+    private void write(Properties values) throws Exception {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            values.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+}
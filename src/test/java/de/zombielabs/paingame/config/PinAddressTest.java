@@ -0,0 +1,58 @@
+package de.zombielabs.paingame.config;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests parsing of pin addresses.
+ */
+public class PinAddressTest extends TestCase {
+
+    public void testPiPins() {
+        assertEquals(new PinAddress(PinAddress.RASPI, 12), PinAddress.parse("12"));
+        assertEquals(new PinAddress(PinAddress.RASPI, 0), PinAddress.parse(" 0 "));
+    }
+
+    public void testExpanderPins() {
+        assertEquals(new PinAddress(1, 0), PinAddress.parse("1:A0"));
+        assertEquals(new PinAddress(1, 3), PinAddress.parse("1:a3"));
+        assertEquals(new PinAddress(1, 7), PinAddress.parse("1:A7"));
+        assertEquals(new PinAddress(1, 8), PinAddress.parse("1:B0"));
+        assertEquals(new PinAddress(2, 15), PinAddress.parse("2 : B7"));
+        assertEquals(new PinAddress(1, 11), PinAddress.parse("1:11"));
+    }
+
+    public void testToStringCanBeParsedAgain() {
+        final PinAddress pin = PinAddress.parse("3:B2");
+        assertEquals("3:10", pin.toString());
+        assertEquals(pin, PinAddress.parse(pin.toString()));
+        assertEquals(pin.hashCode(), PinAddress.parse(pin.toString()).hashCode());
+    }
+
+    public void testPortPinsOutOfRange() {
+        assertInvalid("1:A8");
+        assertInvalid("1:A9");
+        assertInvalid("1:B8");
+        assertInvalid("1:A-1");
+        assertInvalid("1:B-8");
+    }
+
+    public void testMalformed() {
+        assertInvalid("");
+        assertInvalid("GPIO_01");
+        assertInvalid("1:");
+        assertInvalid(":A1");
+        assertInvalid("1:A");
+        assertInvalid("1:C1");
+        assertInvalid("1:A1:2");
+        assertInvalid("x:A1");
+    }
+
+    private static void assertInvalid(String value) {
+        try {
+            PinAddress.parse(value);
+            fail(value + " is not a pin address");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(value));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.zombielabs.paingame.games;
+
+import de.zombielabs.paingame.GameController;
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.PlayerFactory;
+import de.zombielabs.paingame.config.ConfigurationLoader;
+import de.zombielabs.paingame.random.GameRandom;
+import de.zombielabs.paingame.safety.ShockGovernor;
+import de.zombielabs.paingame.safety.ShockLimits;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests that Shocky only scores the shocks the ShockGovernor grants, with a
+ * probability of 1, so every player hits the magic number every round.
+ */
+public class ShockyTest extends TestCase {
+
+    private static final int ROUNDS = 3;
+
+    private List<Player> players;
+
+    private GameController controller;
+
+    private ShockGovernor governor;
+
+    @Override
+    protected void setUp() throws Exception {
+        players = new PlayerFactory(new VirtualClock()).create(ConfigurationLoader.parse(ConfigurationLoader.loadDefaults()));
+        controller = new GameController(players);
+        governor = controller.getShockGovernor();
+        governor.setLimits(new ShockLimits(1, 60000, 5000, 0));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        controller.shutdown();
+    }
+
+    public void testDeniedShocksDoNotScore() throws Exception {
+        final HashMap<Player, Integer> score = play();
+
+        // Only the first round's shocks fit the budget
+        for(final Player player : players) {
+            assertEquals(1, score.get(player).intValue());
+        }
+        assertEquals(players.size(), governor.getCount(ShockGovernor.Verdict.GRANTED));
+        assertEquals((ROUNDS - 1) * players.size(), governor.getCount(ShockGovernor.Verdict.TOO_MANY));
+    }
+
+    public void testEverybodyIsShockedIfAllShocksWereDenied() throws Exception {
+        for(final Player player : players) {
+            assertEquals(ShockGovernor.Verdict.GRANTED, governor.request(player, 300));
+        }
+
+        final HashMap<Player, Integer> score = play();
+
+        for(final Player player : players) {
+            assertEquals(0, score.get(player).intValue());
+        }
+        // Every round plus one more try for everybody at the end
+        assertEquals((ROUNDS + 1) * players.size(), governor.getCount(ShockGovernor.Verdict.TOO_MANY));
+    }
+
+    private HashMap<Player, Integer> play() throws Exception {
+        final Shocky game = new Shocky(ROUNDS, 100, 1);
+        game.setRandom(new GameRandom(1));
+        return controller.play(game).get(10, TimeUnit.SECONDS);
+    }
+}
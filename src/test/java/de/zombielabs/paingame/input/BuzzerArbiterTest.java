@@ -0,0 +1,219 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Tests the BuzzerArbiter with the maximum amount of players pressing their
+ * buzzers concurrently, in random order.
+ */
+public class BuzzerArbiterTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 500;
+
+    private static final long TIE_WINDOW = 20000;
+
+    private SimulatedExpander expander;
+
+    private PlayerBoard board;
+
+    private Player[] players;
+
+    private BuzzerInput input;
+
+    private BuzzerArbiter arbiter;
+
+    @Override
+    protected void setUp() throws Exception {
+        final Random random = new Random(42);
+        final List<Player> list = new ArrayList<Player>();
+        expander = new SimulatedExpander(PlayerBoard.MAX_PLAYERS);
+        board = new PlayerBoard(expander);
+        for(int slot=0; slot<PlayerBoard.MAX_PLAYERS; slot++) {
+            final Player player = new Player("Player " + (slot + 1), slot, board);
+            player.setBuzzerOffset(random.nextInt(10) * 1000);
+            list.add(player);
+        }
+        players = list.toArray(new Player[list.size()]);
+
+        arbiter = new BuzzerArbiter(players, TIE_WINDOW, TimeUnit.NANOSECONDS);
+        input = new BuzzerInput();
+        input.attach(list);
+        input.addListener(arbiter);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        input.detach();
+        board.shutdown();
+    }
+
+    public void testEarliestPressWinsUnderConcurrentInput() throws Exception {
+        final Random random = new Random(4711);
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final AtomicInteger notified = new AtomicInteger();
+        arbiter.addListener(new FirstBuzzListener() {
+            @Override
+            public void onFirstBuzz(BuzzDecision decision) {
+                notified.incrementAndGet();
+            }
+        });
+
+        try {
+            int ties = 0;
+            for(int round=0; round<ROUNDS; round++) {
+                final long openedAt = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+                final long[] raw = new long[players.length];
+                final List<Integer> order = new ArrayList<Integer>();
+                for(int slot=0; slot<players.length; slot++) {
+                    // Coarse timestamps, so equal timestamps and ties happen
+                    raw[slot] = openedAt + (random.nextInt(2000) - 20) * 500L;
+                    order.add(slot);
+                }
+                Collections.shuffle(order, random);
+
+                expander.release(-1L);
+                arbiter.open(openedAt);
+                press(pool, order, raw);
+
+                long bestTime = Long.MAX_VALUE;
+                int best = -1;
+                long falseStarts = 0;
+                for(int slot=0; slot<players.length; slot++) {
+                    final long corrected = raw[slot] - players[slot].getBuzzerOffset();
+                    if(corrected < openedAt) {
+                        falseStarts |= players[slot].getMask();
+                    } else if(corrected < bestTime) {
+                        bestTime = corrected;
+                        best = slot;
+                    }
+                }
+
+                long expectedTies = 0;
+                for(int slot=0; slot<players.length; slot++) {
+                    final long corrected = raw[slot] - players[slot].getBuzzerOffset();
+                    if(slot != best && corrected >= openedAt && corrected - bestTime <= TIE_WINDOW) {
+                        expectedTies |= players[slot].getMask();
+                    }
+                }
+
+                final BuzzDecision decision = arbiter.awaitDecision(1, TimeUnit.SECONDS);
+                assertSame("Round " + round, players[best], decision.getWinner());
+                assertEquals("Round " + round, bestTime, decision.getTimestamp());
+                assertEquals("Round " + round, expectedTies, decision.getTies());
+                assertEquals("Round " + round, falseStarts, arbiter.getFalseStarts());
+                assertSame(decision, arbiter.decideNow());
+                if(decision.isTie()) {
+                    ties++;
+                }
+            }
+
+            assertEquals(ROUNDS, notified.get());
+            assertTrue("Ties should have happened", ties > 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public void testOnlyTheFirstPressOfAPlayerCounts() throws Exception {
+        final long openedAt = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        arbiter.open(openedAt);
+
+        arbiter.onBuzz(players[5], openedAt + 100000);
+        arbiter.onBuzz(players[5], openedAt + 1000);
+        arbiter.onBuzz(players[9], openedAt + 50000);
+
+        final BuzzDecision decision = arbiter.awaitDecision(1, TimeUnit.SECONDS);
+        assertSame(players[9], decision.getWinner());
+        assertFalse(decision.isTie());
+    }
+
+    public void testFalseStartsAreIgnored() throws Exception {
+        final long openedAt = System.nanoTime();
+        arbiter.open(openedAt);
+
+        arbiter.onBuzz(players[1], openedAt - 1);
+        assertNull(arbiter.awaitDecision(10, TimeUnit.MILLISECONDS));
+        assertEquals(players[1].getMask(), arbiter.getFalseStarts());
+
+        arbiter.onBuzz(players[2], openedAt);
+        assertSame(players[2], arbiter.awaitDecision(1, TimeUnit.SECONDS).getWinner());
+    }
+
+    public void testRecalibratedOffsetsAreWaitedFor() throws Exception {
+        final VirtualClock clock = new VirtualClock();
+        final PlayerBoard virtual = new PlayerBoard(new SimulatedExpander(2), clock);
+        final Player fast = new Player("Fast", 0, virtual);
+        final Player slow = new Player("Slow", 1, virtual);
+        final BuzzerArbiter recalibrated = new BuzzerArbiter(new Player[] { fast, slow }, TIE_WINDOW, TimeUnit.NANOSECONDS);
+        try {
+            slow.setBuzzerOffset(TimeUnit.MILLISECONDS.toNanos(50));
+            final long openedAt = clock.nanoTime();
+            recalibrated.open(openedAt);
+            recalibrated.onBuzz(fast, openedAt);
+
+            assertSame(fast, recalibrated.awaitDecision(1, TimeUnit.SECONDS).getWinner());
+            assertTrue("The arbiter must wait for the new offset", clock.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(50));
+        } finally {
+            virtual.shutdown();
+        }
+    }
+
+    public void testNothingIsDecidedWithoutPresses() throws Exception {
+        arbiter.open();
+        assertNull(arbiter.peek());
+        assertNull(arbiter.decideNow());
+        assertNull(arbiter.awaitDecision(10, TimeUnit.MILLISECONDS));
+
+        arbiter.close();
+        arbiter.onBuzz(players[0], System.nanoTime());
+        assertNull(arbiter.decideNow());
+    }
+
+    /**
+     * Presses all buzzers in the given order, spread over all threads, which
+     * all start at the same time.
+     */
+    private void press(ExecutorService pool, List<Integer> order, final long[] raw) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Void>> done = new ArrayList<Future<Void>>();
+        for(int thread=0; thread<THREADS; thread++) {
+            final List<Integer> share = new ArrayList<Integer>();
+            for(int i=thread; i<order.size(); i+=THREADS) {
+                share.add(order.get(i));
+            }
+
+            done.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for(final int slot : share) {
+                        expander.press(1L << slot, raw[slot]);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        start.countDown();
+        for(final Future<Void> future : done) {
+            future.get();
+        }
+    }
+}
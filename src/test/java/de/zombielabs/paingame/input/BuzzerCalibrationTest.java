@@ -0,0 +1,139 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests the BuzzerCalibration on a simulated board in virtual time, with
+ * hands that press every buzzer a fixed time after the cue.
+ */
+public class BuzzerCalibrationTest extends TestCase {
+
+    private static final int TRIALS = 6;
+
+    private VirtualClock clock;
+
+    private Hands hands;
+
+    private PlayerBoard board;
+
+    private Player[] players;
+
+    private BuzzerInput input;
+
+    /**
+     * Presses the buzzers once the LEDs light up, and releases them once the
+     * LEDs are off again.
+     */
+    private static final class Hands extends SimulatedExpander {
+
+        private final VirtualClock clock;
+
+        /**
+         * How long each buzzer takes to be pressed after the cue, by slot, in
+         * milliseconds, negative for never.
+         */
+        private final long[] latencies;
+
+        private int cues;
+
+        /**
+         * After how many cues to use the late latencies.
+         */
+        private int change = Integer.MAX_VALUE;
+
+        private long[] late;
+
+        Hands(VirtualClock clock, long... latencies) {
+            super(latencies.length, clock);
+            this.clock = clock;
+            this.latencies = latencies;
+        }
+
+        @Override
+        public synchronized void write(long shock, long led) {
+            final boolean cue = this.getLED() == 0 && led != 0;
+            super.write(shock, led);
+
+            if(cue) {
+                final long[] current = ++this.cues > this.change ? this.late : this.latencies;
+                for(int slot=0; slot<current.length; slot++) {
+                    if(current[slot] >= 0) {
+                        final long mask = 1L << slot;
+                        this.clock.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                press(mask);
+                            }
+                        }, current[slot]);
+                    }
+                }
+            } else if(led == 0) {
+                this.release(-1L);
+            }
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        clock = new VirtualClock();
+        // Dave never presses
+        hands = new Hands(clock, 5, 12, 8, -1);
+        board = new PlayerBoard(hands, clock);
+
+        final List<Player> list = new ArrayList<Player>();
+        for(final String name : new String[] { "Alice", "Bob", "Carol", "Dave" }) {
+            list.add(new Player(name, list.size(), board));
+        }
+        players = list.toArray(new Player[list.size()]);
+
+        input = new BuzzerInput();
+        input.attach(list);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        input.detach();
+        board.shutdown();
+    }
+
+    public void testOffsetsMakeTheBuzzersEven() throws Exception {
+        players[1].setBuzzerOffset(42);
+        final CalibrationReport report = new BuzzerCalibration(input, players).run(TRIALS, 3000);
+
+        assertEquals(TRIALS + (TRIALS + 1) / 2, hands.cues);
+        assertEquals(0, report.getOffset(0));
+        assertEquals(millis(7), report.getOffset(1));
+        assertEquals(millis(3), report.getOffset(2));
+        assertEquals(0, report.getOffset(3));
+        assertEquals(millis(7), report.getSkewBefore());
+        assertEquals(0, report.getSkewAfter());
+
+        // Only applied on request
+        assertEquals(42, players[1].getBuzzerOffset());
+        assertEquals(0, players[2].getBuzzerOffset());
+        report.apply();
+        assertEquals(millis(7), players[1].getBuzzerOffset());
+    }
+
+    public void testResidualSkewIsMeasuredOnFreshPresses() throws Exception {
+        // Bob gets faster once the offsets have been found
+        hands.change = TRIALS;
+        hands.late = new long[] { 5, 8, 8, -1 };
+        final CalibrationReport report = new BuzzerCalibration(input, players).run(TRIALS, 3000);
+
+        assertEquals(millis(7), report.getOffset(1));
+        assertEquals(millis(4), report.getSkewAfter());
+        assertTrue(report.toString(), report.toString().contains("residual skew in verification: 4000 us"));
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,77 @@
+package de.zombielabs.paingame.input;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import junit.framework.TestCase;
+
+/**
+ * Tests the arithmetic of the CalibrationReport, with latencies in
+ * nanoseconds.
+ */
+public class CalibrationReportTest extends TestCase {
+
+    private PlayerBoard board;
+
+    private Player[] players;
+
+    private CalibrationReport report;
+
+    @Override
+    protected void setUp() throws Exception {
+        board = new PlayerBoard(new SimulatedExpander(3));
+        players = new Player[] { new Player("Alice", 0, board), new Player("Bob", 1, board), new Player("Carol", 2, board) };
+        players[2].setBuzzerOffset(777000);
+
+        // Carol has not pressed at all
+        report = new CalibrationReport(players, new long[][] {
+            { 1000000, 1200000, 1100000, 5000000 },
+            { 3000000, 3100000, 2900000, 0 },
+            { 0, 0, 0, 0 }
+        }, new int[] { 4, 3, 0 });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        board.shutdown();
+    }
+
+    public void testOffsetsAreRelativeToTheFastestMedian() {
+        assertEquals(0, report.getOffset(0));
+        assertEquals(1850000, report.getOffset(1));
+        assertEquals(0, report.getOffset(2));
+        assertEquals(1850000, report.getSkewBefore());
+    }
+
+    public void testSkewAfterComesFromTheVerification() {
+        assertEquals(0, report.getSkewAfter());
+
+        report.verify(new long[][] {
+            { 1100000, 1300000, 1200000 },
+            { 1300000, 1400000, 0 },
+            { 0, 0, 0 }
+        }, new int[] { 3, 2, 0 });
+        assertEquals(150000, report.getSkewAfter());
+    }
+
+    public void testApplySkipsPlayersWithoutMeasurements() {
+        players[0].setBuzzerOffset(123);
+        report.apply();
+
+        assertEquals(0, players[0].getBuzzerOffset());
+        assertEquals(1850000, players[1].getBuzzerOffset());
+        assertEquals(777000, players[2].getBuzzerOffset());
+    }
+
+    public void testReportHasTheConfigurationLines() {
+        report.verify(new long[][] { { 1150000 }, { 1150000 }, { 0 } }, new int[] { 1, 1, 0 });
+        final String text = report.toString();
+
+        assertTrue(text, text.contains("player.1.buzzerOffset=0\n"));
+        assertTrue(text, text.contains("player.2.buzzerOffset=1850\n"));
+        assertFalse(text, text.contains("player.3.buzzerOffset"));
+        assertTrue(text, text.contains("Carol        no measurements"));
+        assertTrue(text, text.contains("jitter    100 us"));
+        assertTrue(text, text.contains("residual skew in verification: 0 us"));
+    }
+}
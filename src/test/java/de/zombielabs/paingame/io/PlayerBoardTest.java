@@ -0,0 +1,90 @@
+package de.zombielabs.paingame.io;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.input.BuzzerInput;
+import de.zombielabs.paingame.input.BuzzerListener;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests the PlayerBoard on a simulated expander with the maximum amount of
+ * players.
+ */
+public class PlayerBoardTest extends TestCase {
+
+    private SimulatedExpander expander;
+
+    private PlayerBoard board;
+
+    private List<Player> players;
+
+    @Override
+    protected void setUp() throws Exception {
+        expander = new SimulatedExpander(PlayerBoard.MAX_PLAYERS);
+        board = new PlayerBoard(expander);
+        players = new ArrayList<Player>();
+        for(int slot=0; slot<PlayerBoard.MAX_PLAYERS; slot++) {
+            players.add(new Player("Player " + (slot + 1), slot, board));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        board.shutdown();
+    }
+
+    public void testSetAndClearAreSingleWrites() {
+        final long writes = expander.getWrites();
+
+        board.set(-1L, 0);
+        assertEquals(-1L, expander.getShock());
+        assertEquals(0, expander.getLED());
+        assertEquals(writes + 1, expander.getWrites());
+        assertEquals(PlayerBoard.MAX_PLAYERS, expander.getTransitions());
+
+        players.get(63).resetOutput();
+        assertEquals(Long.MAX_VALUE, expander.getShock());
+
+        board.reset();
+        assertEquals(0, expander.getShock());
+        assertEquals(writes + 3, expander.getWrites());
+    }
+
+    public void testBlockingPulseSwitchesOff() {
+        board.pulse(players.get(0).getMask(), players.get(40).getMask(), 10, true);
+        assertEquals(0, expander.getShock());
+        assertEquals(0, expander.getLED());
+        assertEquals(4, expander.getTransitions());
+    }
+
+    public void testPlayerSlotMustBeOnTheBoard() {
+        try {
+            new Player("Nobody", PlayerBoard.MAX_PLAYERS, board);
+            fail("Slot 64 must not exist");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testBuzzersAreDispatchedBySlot() {
+        final BuzzerInput input = new BuzzerInput();
+        final List<Player> pressed = new ArrayList<Player>();
+        input.attach(players);
+        input.addListener(new BuzzerListener() {
+            @Override
+            public void onBuzz(Player player, long timestamp) {
+                pressed.add(player);
+            }
+        });
+
+        expander.press((1L << 3) | (1L << 63), 1000);
+        expander.press(1L << 3, 2000);
+
+        assertEquals(2, pressed.size());
+        assertSame(players.get(3), pressed.get(0));
+        assertSame(players.get(63), pressed.get(1));
+        assertTrue(players.get(63).isBuzzerPressed());
+        assertFalse(players.get(62).isBuzzerPressed());
+    }
+}
@@ -0,0 +1,100 @@
+package de.zombielabs.paingame.log;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Compares what a log call costs the calling thread with log4j directly and
+ * with the EventLog, with a disk that takes a millisecond per message, and
+ * prints the results. Not a test, as the timings depend on the machine; run
+ * it by hand when touching the logging.
+ */
+public final class EventLogBenchmark {
+
+    /**
+     * The amount of calls to measure with the EventLog.
+     */
+    private static final int CALLS = 2000;
+
+    /**
+     * The amount of calls to measure with log4j directly, each one waits for
+     * the disk.
+     */
+    private static final int DIRECT_CALLS = CALLS / 20;
+
+    /**
+     * Takes a millisecond per message, like a slow disk.
+     */
+    private static final class SlowDisk extends AppenderSkeleton {
+
+        @Override
+        protected void append(LoggingEvent event) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private EventLogBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Ignored
+     * @throws InterruptedException If interrupted while waiting for the disk
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final Logger logger = LogManager.getLogger(EventLogBenchmark.class);
+        logger.setAdditivity(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(new SlowDisk());
+        final EventLog eventLog = new EventLog(256);
+
+        // Directly, every call waits for the disk
+        final long[] direct = new long[DIRECT_CALLS];
+        for(int i=0; i<direct.length; i++) {
+            final long start = System.nanoTime();
+            logger.info("Round " + i + " of " + CALLS + " of Shocky is about to start");
+            direct[i] = System.nanoTime() - start;
+        }
+
+        // With the EventLog, warmed up first
+        for(int i=0; i<CALLS; i++) {
+            eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", i, CALLS);
+        }
+        eventLog.flush(30, TimeUnit.SECONDS);
+
+        final long[] queued = new long[CALLS];
+        for(int i=0; i<CALLS; i++) {
+            final long start = System.nanoTime();
+            eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", i, CALLS);
+            queued[i] = System.nanoTime() - start;
+        }
+        eventLog.flush(30, TimeUnit.SECONDS);
+        eventLog.shutdown();
+
+        Arrays.sort(direct);
+        Arrays.sort(queued);
+        System.out.println("Per call: log4j " + direct[direct.length / 2] + " ns, EventLog " + queued[queued.length / 2] + " ns");
+        System.out.println("EventLog 99%: " + queued[queued.length * 99 / 100] + " ns, max " + queued[queued.length - 1] + " ns, " + eventLog.getDropped() + " dropped");
+    }
+}
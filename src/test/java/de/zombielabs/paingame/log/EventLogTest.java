@@ -0,0 +1,195 @@
+package de.zombielabs.paingame.log;
+
+import de.zombielabs.paingame.safety.ShockGovernor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Tests the EventLog, also with a disk that does not get anything written.
+ * What a log call costs compared to log4j directly is measured by
+ * EventLogBenchmark.
+ */
+public class EventLogTest extends TestCase {
+
+    private EventLog eventLog;
+
+    private Logger logger;
+
+    private Recorder recorder;
+
+    /**
+     * Keeps everything appended, optionally blocking like a stuck disk until
+     * its gate opens.
+     */
+    private static final class Recorder extends AppenderSkeleton {
+
+        private final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch gate;
+
+        Recorder(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        protected void append(LoggingEvent event) {
+            entered.countDown();
+            if(gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized(this) {
+                events.add(event);
+            }
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<LoggingEvent> getEvents() {
+            return new ArrayList<LoggingEvent>(events);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        logger = LogManager.getLogger(EventLogTest.class.getName() + "." + getName());
+        logger.setAdditivity(false);
+        logger.setLevel(Level.INFO);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if(eventLog != null) {
+            eventLog.shutdown();
+        }
+        if(recorder != null) {
+            logger.removeAppender(recorder);
+        }
+    }
+
+    public void testEventsAreWrittenWithTheirTimeAndThread() throws Exception {
+        eventLog = new EventLog(64);
+        recorder = new Recorder(null);
+        logger.addAppender(recorder);
+
+        final long before = System.currentTimeMillis();
+        assertTrue(eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", 3, 10));
+        assertTrue(eventLog.log(logger, LogEvent.SHOCK_DENIED, "Alice", ShockGovernor.Verdict.TOO_SOON, 300, 0));
+        assertTrue(eventLog.flush(5, TimeUnit.SECONDS));
+
+        final List<LoggingEvent> events = recorder.getEvents();
+        assertEquals(2, events.size());
+        assertEquals("Round 3 of 10 of Shocky is about to start", events.get(0).getRenderedMessage());
+        assertEquals(Level.INFO, events.get(0).getLevel());
+        assertEquals(Thread.currentThread().getName(), events.get(0).getThreadName());
+        assertEquals(logger.getName(), events.get(0).getLoggerName());
+        assertTrue(events.get(0).timeStamp >= before);
+        assertEquals("Not shocking 'Alice' for 300 ms: TOO_SOON", events.get(1).getRenderedMessage());
+        assertEquals(Level.WARN, events.get(1).getLevel());
+        assertEquals(2, eventLog.getWritten());
+    }
+
+    public void testDisabledEventsAreIgnored() throws Exception {
+        eventLog = new EventLog(64);
+        recorder = new Recorder(null);
+        logger.addAppender(recorder);
+
+        assertFalse(eventLog.log(logger, LogEvent.LUCKY, "Alice", 7));
+        assertTrue(eventLog.flush(5, TimeUnit.SECONDS));
+        assertTrue(recorder.getEvents().isEmpty());
+        assertEquals(0, eventLog.getDropped());
+    }
+
+    public void testMutedThreadsAreIgnored() throws Exception {
+        eventLog = new EventLog(64);
+        recorder = new Recorder(null);
+        logger.addAppender(recorder);
+
+        eventLog.setMuted(true);
+        assertFalse(eventLog.log(logger, LogEvent.MAGIC_NUMBER, null, 7, 42));
+        eventLog.setMuted(false);
+        assertTrue(eventLog.log(logger, LogEvent.MAGIC_NUMBER, null, 8, 43));
+        assertTrue(eventLog.flush(5, TimeUnit.SECONDS));
+
+        final List<LoggingEvent> events = recorder.getEvents();
+        assertEquals(1, events.size());
+        assertEquals("Magic number is 8 (seed 43)", events.get(0).getRenderedMessage());
+        assertEquals(0, eventLog.getDropped());
+    }
+
+    public void testCapacityMustBeAPowerOfTwo() {
+        try {
+            new EventLog(100);
+            fail("100 is not a power of two");
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+
+    public void testBlockedDiskDoesNotStallTheCaller() throws Exception {
+        eventLog = new EventLog(64);
+        recorder = new Recorder(new CountDownLatch(1));
+        logger.addAppender(recorder);
+
+        // The first record gets stuck on its way to the disk
+        assertTrue(eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", 1, 100));
+        assertTrue(recorder.entered.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread game = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(int i=0; i<eventLog.getCapacity() + 10; i++) {
+                    eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", i + 2, 100);
+                }
+                done.countDown();
+            }
+        }, "game");
+        game.start();
+
+        // What does not fit in the ring is dropped, nobody waits for the disk
+        assertTrue("The caller must not wait for the disk", done.await(5, TimeUnit.SECONDS));
+        assertEquals("The writer must still be stuck on the first record", 0, eventLog.getWritten());
+        assertEquals(10, eventLog.getDropped());
+
+        recorder.gate.countDown();
+        assertTrue(eventLog.flush(5, TimeUnit.SECONDS));
+        assertEquals(1 + eventLog.getCapacity(), recorder.getEvents().size());
+        assertEquals(1 + eventLog.getCapacity(), eventLog.getWritten());
+    }
+
+    public void testIdleWriterIsWokenUp() throws Exception {
+        eventLog = new EventLog(64);
+        recorder = new Recorder(null);
+        logger.addAppender(recorder);
+
+        for(int i=1; i<=3; i++) {
+            assertTrue(eventLog.log(logger, LogEvent.ROUND_STARTED, "Shocky", i, 3));
+            assertTrue(eventLog.flush(5, TimeUnit.SECONDS));
+            assertEquals(i, recorder.getEvents().size());
+
+            // Let the writer run out of records
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.zombielabs.paingame.random;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Compares starting a game, i.e. getting its random numbers and drawing the
+ * magic number, and drawing a single number with a new SecureRandom per game
+ * and with the RandomService, and prints the results. Not a test, as the
+ * timings depend on the machine; run it by hand when touching the random
+ * numbers.
+ *
+ * This only compares the cost of both. Whether a new SecureRandom blocks
+ * because the system is short of entropy, like a freshly booted Pi might be,
+ * depends on the platform and cannot be reproduced here.
+ */
+public final class RandomServiceBenchmark {
+
+    /**
+     * The amount of games to start.
+     */
+    private static final int GAMES = 200;
+
+    /**
+     * The amount of numbers to draw.
+     */
+    private static final int DRAWS = 1000000;
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private RandomServiceBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     * @param args Ignored
+     */
+    public static void main(String[] args) {
+        final PlayerBoard board = new PlayerBoard(new SimulatedExpander(4));
+        final Player[] players = new Player[4];
+        for(int slot=0; slot<players.length; slot++) {
+            players[slot] = new Player("Player " + (slot + 1), slot, board);
+        }
+
+        final RandomService service = new RandomService();
+        int sink = 0;
+
+        // Warm up both paths
+        for(int i=0; i<GAMES; i++) {
+            sink += new SecureRandom().nextInt(10) + service.next().nextInt(10);
+        }
+
+        long start = System.nanoTime();
+        for(int i=0; i<GAMES; i++) {
+            sink += new SecureRandom().nextInt(10);
+        }
+        final long secureStart = (System.nanoTime() - start) / GAMES;
+
+        start = System.nanoTime();
+        for(int i=0; i<GAMES; i++) {
+            sink += service.next().nextInt(10);
+        }
+        final long serviceStart = (System.nanoTime() - start) / GAMES;
+
+        final Random secure = new SecureRandom();
+        start = System.nanoTime();
+        for(int i=0; i<DRAWS; i++) {
+            sink += secure.nextInt(10);
+        }
+        final double secureDraw = (System.nanoTime() - start) / (double) DRAWS;
+
+        final GameRandom random = service.next();
+        start = System.nanoTime();
+        for(int i=0; i<DRAWS; i++) {
+            sink += random.nextInt(players[i & 3], 10);
+        }
+        final double serviceDraw = (System.nanoTime() - start) / (double) DRAWS;
+
+        board.shutdown();
+        System.out.println("Game start: SecureRandom " + secureStart + " ns, RandomService " + serviceStart + " ns");
+        System.out.println(String.format("Per draw: SecureRandom %.1f ns, RandomService %.1f ns (%d)", secureDraw, serviceDraw, sink & 1));
+    }
+}
@@ -0,0 +1,82 @@
+package de.zombielabs.paingame.random;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import junit.framework.TestCase;
+
+/**
+ * Tests that games can be played again from their seeds. See
+ * RandomServiceBenchmark for how the RandomService compares with a new
+ * SecureRandom per game.
+ */
+public class RandomServiceTest extends TestCase {
+
+    private PlayerBoard board;
+
+    private Player[] players;
+
+    @Override
+    protected void setUp() throws Exception {
+        board = new PlayerBoard(new SimulatedExpander(4));
+        players = new Player[4];
+        for(int slot=0; slot<players.length; slot++) {
+            players[slot] = new Player("Player " + (slot + 1), slot, board);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        board.shutdown();
+    }
+
+    public void testSameSeedHandsOutTheSameGames() {
+        final RandomService first = new RandomService(42);
+        final RandomService second = new RandomService(42);
+
+        for(int game=0; game<10; game++) {
+            final GameRandom a = first.next();
+            final GameRandom b = second.next();
+            assertEquals(a.getSeed(), b.getSeed());
+            for(int draw=0; draw<100; draw++) {
+                assertEquals(a.nextInt(1000), b.nextInt(1000));
+                assertEquals(a.nextInt(players[draw % 4], 1000), b.nextInt(players[draw % 4], 1000));
+            }
+        }
+    }
+
+    public void testGameCanBePlayedAgainFromItsSeed() {
+        final GameRandom played = new RandomService().next();
+        final int[] draws = new int[50];
+        for(int i=0; i<draws.length; i++) {
+            draws[i] = played.nextInt(players[2], 10);
+        }
+
+        final GameRandom again = new GameRandom(played.getSeed());
+        for(int i=0; i<draws.length; i++) {
+            assertEquals(draws[i], again.nextInt(players[2], 10));
+        }
+    }
+
+    public void testPlayerStreamsAreIndependent() {
+        final GameRandom quiet = new GameRandom(4711);
+        final GameRandom busy = new GameRandom(4711);
+
+        // Drawing for the game and the other players must not change player 3's numbers
+        for(int i=0; i<1000; i++) {
+            busy.nextInt(100);
+            busy.nextInt(players[0], 100);
+            busy.nextInt(players[1], 100);
+        }
+
+        int same = 0;
+        for(int i=0; i<1000; i++) {
+            final int draw = quiet.nextInt(players[3], 1 << 30);
+            assertEquals(draw, busy.nextInt(players[3], 1 << 30));
+            if(draw == quiet.nextInt(players[2], 1 << 30)) {
+                same++;
+            }
+        }
+        assertTrue("Streams of different players must differ", same < 5);
+    }
+}
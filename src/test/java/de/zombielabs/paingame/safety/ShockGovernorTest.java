@@ -0,0 +1,197 @@
+package de.zombielabs.paingame.safety;
+
+import de.zombielabs.paingame.Player;
+import de.zombielabs.paingame.io.PlayerBoard;
+import de.zombielabs.paingame.io.SimulatedExpander;
+import de.zombielabs.paingame.time.VirtualClock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the ShockGovernor enforces its limits in every window, on a
+ * simulated board in virtual time.
+ */
+public class ShockGovernorTest extends TestCase {
+
+    private static final long WINDOW = 60000;
+
+    private VirtualClock clock;
+
+    private PlayerBoard board;
+
+    private Player alice;
+
+    private Player bob;
+
+    private ShockGovernor governor;
+
+    /**
+     * Start and end of every granted shock, in milliseconds.
+     */
+    private final List<long[]> granted = new ArrayList<long[]>();
+
+    @Override
+    protected void setUp() throws Exception {
+        clock = new VirtualClock();
+        board = new PlayerBoard(new SimulatedExpander(2, clock), clock);
+        alice = new Player("Alice", 0, board);
+        bob = new Player("Bob", 1, board);
+        governor = new ShockGovernor();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        board.shutdown();
+    }
+
+    public void testDefaultsAllowTenShocksPerWindow() {
+        // The default minimum gap is a second, so ask every second for three windows
+        for(int second=0; second<3 * WINDOW / 1000; second++) {
+            request(alice, 300);
+            clock.advance(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(30, granted.size());
+        assertWindowsHold(10, 5000);
+    }
+
+    public void testShockCountSlides() {
+        governor.setLimits(new ShockLimits(10, WINDOW, WINDOW, 0));
+
+        // Bursts at the end of one window and the start of the next
+        clock.advance(WINDOW - 100, TimeUnit.MILLISECONDS);
+        for(int i=0; i<20; i++) {
+            request(alice, 1);
+            clock.advance(10, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(10, granted.size());
+
+        for(int step=0; step<4 * WINDOW / 250; step++) {
+            request(alice, 1);
+            clock.advance(250, TimeUnit.MILLISECONDS);
+        }
+
+        assertWindowsHold(10, WINDOW);
+    }
+
+    public void testOnTimeSlides() {
+        governor.setLimits(new ShockLimits(1000, WINDOW, 5000, 0));
+
+        for(int step=0; step<3 * WINDOW / 700; step++) {
+            request(alice, 900);
+            clock.advance(700, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(governor.getCount(alice, ShockGovernor.Verdict.TOO_LONG) > 0);
+        assertWindowsHold(1000, 5000);
+    }
+
+    public void testMinimumGap() {
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+        clock.advance(999, TimeUnit.MILLISECONDS);
+        assertEquals(ShockGovernor.Verdict.TOO_SOON, request(alice, 300));
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+    }
+
+    public void testShockLongerThanTheBudget() {
+        assertEquals(ShockGovernor.Verdict.TOO_LONG, request(alice, 5001));
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 5000));
+    }
+
+    public void testDeniedShocksAreNotCharged() {
+        governor.setLimits(new ShockLimits(2, WINDOW, 5000, 1000));
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+        for(int i=0; i<10; i++) {
+            assertEquals(ShockGovernor.Verdict.TOO_SOON, request(alice, 300));
+        }
+        clock.advance(1, TimeUnit.SECONDS);
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+        clock.advance(1, TimeUnit.SECONDS);
+        assertEquals(ShockGovernor.Verdict.TOO_MANY, request(alice, 300));
+
+        assertEquals(2, governor.getCount(ShockGovernor.Verdict.GRANTED));
+        assertEquals(11, governor.getDenied());
+    }
+
+    public void testBudgetRefillsAfterTheWindow() {
+        governor.setLimits(new ShockLimits(1, WINDOW, 5000, 0));
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+        clock.advance(WINDOW - 1, TimeUnit.MILLISECONDS);
+        assertEquals(ShockGovernor.Verdict.TOO_MANY, request(alice, 300));
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+    }
+
+    public void testBudgetsArePerPlayer() {
+        governor.setLimits(new ShockLimits(1, WINDOW, 5000, 0));
+        assertEquals(ShockGovernor.Verdict.GRANTED, request(alice, 300));
+        assertEquals(ShockGovernor.Verdict.TOO_MANY, request(alice, 300));
+        assertEquals(ShockGovernor.Verdict.GRANTED, governor.request(bob, 300));
+        assertEquals(1, governor.getCount(alice, ShockGovernor.Verdict.TOO_MANY));
+        assertEquals(0, governor.getCount(bob, ShockGovernor.Verdict.TOO_MANY));
+    }
+
+    public void testRaisedLimitsKeepTheHistory() {
+        governor.setLimits(new ShockLimits(2, WINDOW, WINDOW, 0));
+        for(int i=0; i<4; i++) {
+            request(alice, 1);
+            clock.advance(1, TimeUnit.SECONDS);
+        }
+
+        governor.setLimits(new ShockLimits(5, WINDOW, WINDOW, 0));
+        for(int i=0; i<10; i++) {
+            request(alice, 1);
+            clock.advance(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5, granted.size());
+        assertWindowsHold(5, WINDOW);
+    }
+
+    /**
+     * Asks for a shock for a player and remembers it if it has been granted.
+     */
+    private ShockGovernor.Verdict request(Player player, long duration) {
+        final ShockGovernor.Verdict verdict = governor.request(player, duration);
+        if(verdict == ShockGovernor.Verdict.GRANTED) {
+            final long now = TimeUnit.NANOSECONDS.toMillis(clock.nanoTime());
+            granted.add(new long[] { now, now + duration });
+        }
+        return verdict;
+    }
+
+    /**
+     * Checks every window that ends at the end of a granted shock, as these
+     * are the ones holding the most shock time.
+     */
+    private void assertWindowsHold(int maxShocks, long maxOnTime) {
+        for(final long[] last : granted) {
+            final long from = last[1] - WINDOW;
+            int shocks = 0;
+            long onTime = 0;
+            for(final long[] shock : granted) {
+                if(shock[0] >= from && shock[0] < last[1]) {
+                    shocks++;
+                }
+                onTime += Math.max(0, Math.min(shock[1], last[1]) - Math.max(shock[0], from));
+            }
+
+            assertTrue(shocks + " shocks in the window ending at " + last[1], shocks <= maxShocks);
+            assertTrue(onTime + " ms in the window ending at " + last[1], onTime <= maxOnTime);
+        }
+
+        // Windows starting at a shock hold the most shocks
+        for(final long[] first : granted) {
+            int shocks = 0;
+            for(final long[] shock : granted) {
+                if(shock[0] >= first[0] && shock[0] < first[0] + WINDOW) {
+                    shocks++;
+                }
+            }
+            assertTrue(shocks + " shocks in the window starting at " + first[0], shocks <= maxShocks);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package de.zombielabs.paingame.time;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the SystemClock keeps running tasks, whatever they throw.
+ */
+public class SystemClockTest extends TestCase {
+
+    public void testFailingTasksDoNotStopTheClock() throws Exception {
+        final CountDownLatch ran = new CountDownLatch(2);
+        SystemClock.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+                throw new Error("Broken task");
+            }
+        }, 0);
+        SystemClock.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 10);
+
+        assertTrue("The clock must run the task after the broken one", ran.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,80 @@
+package de.zombielabs.paingame.time;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the VirtualClock runs everything in order without waiting.
+ */
+public class VirtualClockTest extends TestCase {
+
+    private VirtualClock clock;
+
+    private List<String> ran;
+
+    @Override
+    protected void setUp() throws Exception {
+        clock = new VirtualClock();
+        ran = new ArrayList<String>();
+    }
+
+    public void testSleepRunsDueTasksInOrder() throws Exception {
+        clock.schedule(task("late"), 300);
+        clock.schedule(task("early"), 100);
+        clock.schedule(task("also early"), 100);
+        clock.schedule(task("too late"), 1000);
+
+        final long start = System.nanoTime();
+        clock.sleep(500);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), clock.nanoTime());
+        assertEquals("[early, also early, late]", ran.toString());
+        assertEquals(1, clock.getPending());
+    }
+
+    public void testTasksSeeTheirDueTime() throws Exception {
+        final long[] seen = new long[1];
+        clock.schedule(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = clock.nanoTime();
+                clock.schedule(task("scheduled by a task"), 50);
+            }
+        }, 200);
+
+        clock.advance(1, TimeUnit.SECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), seen[0]);
+        assertEquals("[scheduled by a task]", ran.toString());
+    }
+
+    public void testAwaitStopsOnceTheLatchIsDown() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        clock.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 700);
+        clock.schedule(task("after the latch"), 800);
+
+        assertTrue(clock.await(latch, 1, TimeUnit.SECONDS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(700), clock.nanoTime());
+        assertTrue(ran.isEmpty());
+
+        assertFalse(clock.await(new CountDownLatch(1), 5, TimeUnit.SECONDS));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5700), clock.nanoTime());
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+}